@@ -0,0 +1,13 @@
+package com.he180773.testreact.config;
+
+/**
+ * Định danh của lần khởi động hiện tại, dùng làm tiền tố ETag.
+ * Các version/stamp trong bộ nhớ đếm lại từ 1 sau mỗi lần restart, nên ETag phải khác giữa các lần khởi động.
+ */
+public final class BootId {
+
+    public static final String VALUE = Long.toString(System.currentTimeMillis(), 36);
+
+    private BootId() {
+    }
+}
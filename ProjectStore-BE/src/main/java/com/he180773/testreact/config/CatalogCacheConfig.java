@@ -0,0 +1,23 @@
+package com.he180773.testreact.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class CatalogCacheConfig implements WebMvcConfigurer {
+
+    private final CatalogConditionalRequestInterceptor catalogConditionalRequestInterceptor;
+
+    public CatalogCacheConfig(CatalogConditionalRequestInterceptor catalogConditionalRequestInterceptor) {
+        this.catalogConditionalRequestInterceptor = catalogConditionalRequestInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(catalogConditionalRequestInterceptor)
+                .addPathPatterns("/api/products/**", "/api/productVariant/product/**", "/api/collection/**")
+                // top-sellers đổi theo đơn hàng, không theo version catalog
+                .excludePathPatterns("/api/products/sort/top-sellers");
+    }
+}
@@ -0,0 +1,38 @@
+package com.he180773.testreact.config;
+
+import com.he180773.testreact.service.CatalogSnapshot;
+import com.he180773.testreact.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.LocalDate;
+
+/**
+ * ETag/Last-Modified cho các endpoint đọc catalog, dựa trên version của catalog snapshot.
+ * Nếu If-None-Match khớp thì trả 304 ngay trong preHandle, controller và query không chạy.
+ */
+@Component
+public class CatalogConditionalRequestInterceptor implements HandlerInterceptor {
+
+    private final ProductService productService;
+
+    public CatalogConditionalRequestInterceptor(ProductService productService) {
+        this.productService = productService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        CatalogSnapshot catalog = productService.getCatalog();
+        // Ngày hiện tại nằm trong ETag vì danh sách hàng mới về (30 ngày) thay đổi theo thời gian
+        String etag = "\"c" + BootId.VALUE + "-" + catalog.getVersion() + "-" + LocalDate.now().toEpochDay() + "\"";
+
+        response.setHeader("Cache-Control", "public, no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(etag, catalog.getBuiltAt());
+    }
+}
@@ -0,0 +1,44 @@
+package com.he180773.testreact.controller.admin;
+
+import com.he180773.testreact.service.FlashSaleService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/flash-sale")
+//@CrossOrigin(origins = "https://leventstreetwear.id.vn")
+public class AdminFlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    public AdminFlashSaleController(FlashSaleService flashSaleService) {
+        this.flashSaleService = flashSaleService;
+    }
+
+    // Số món còn lại của các variant đang flash sale
+    @GetMapping
+    public ResponseEntity<?> getFlashSales() {
+        return ResponseEntity.ok(flashSaleService.getRemaining());
+    }
+
+    @PostMapping("/{variantId}/start")
+    public ResponseEntity<?> start(@PathVariable Long variantId) {
+        try {
+            flashSaleService.start(variantId);
+            return ResponseEntity.ok(flashSaleService.getRemaining());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{variantId}/stop")
+    public ResponseEntity<?> stop(@PathVariable Long variantId) {
+        try {
+            flashSaleService.stop(variantId);
+            return ResponseEntity.ok(flashSaleService.getRemaining());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.he180773.testreact.controller.admin;
+
+import com.he180773.testreact.service.LiveMetricsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+//@CrossOrigin(origins = "https://leventstreetwear.id.vn")
+public class AdminMetricsController {
+
+    private final LiveMetricsService liveMetricsService;
+
+    public AdminMetricsController(LiveMetricsService liveMetricsService) {
+        this.liveMetricsService = liveMetricsService;
+    }
+
+    // Dữ liệu ban đầu cho dashboard (theo phút, đọc từ bộ nhớ); cập nhật tiếp theo nhận qua STOMP /topic/admin-metrics
+    @GetMapping("/live")
+    public ResponseEntity<?> getLiveMetrics(@RequestParam(defaultValue = "60") int minutes) {
+        return ResponseEntity.ok(liveMetricsService.getSeries(minutes));
+    }
+}
@@ -1,20 +1,21 @@
 package com.he180773.testreact.controller.admin;
 
-import com.he180773.testreact.controller.client.ProductVariantController;
-import com.he180773.testreact.dto.AdminOrderResponseDTO;
-import com.he180773.testreact.dto.OrderItemDTO;
-import com.he180773.testreact.dto.OrderItemDetailDTO;
-import com.he180773.testreact.dto.OrderRequest;
+import com.he180773.testreact.dto.BulkOrderRequest;
+import com.he180773.testreact.dto.OrderFeedQuery;
 import com.he180773.testreact.entity.*;
-import com.he180773.testreact.mapper.JsonMapper;
 import com.he180773.testreact.repository.*;
+import com.he180773.testreact.service.AdminOrderFeedService;
+import com.he180773.testreact.service.OrderAssembler;
 import com.he180773.testreact.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin/order")
@@ -23,142 +24,110 @@ public class AdminOrderController {
 
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final ProductVariantRepository productVariantRepository;
-    private final ProductRepository productRepository;
     private final OrderService orderService;
-    private final ProductVariantController productVariantController;
-    private final WalletRepository walletRepository;
+    private final OrderAssembler orderAssembler;
+    private final AdminOrderFeedService adminOrderFeedService;
 
-    public AdminOrderController(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
-                                ProductVariantRepository productVariantRepository, ProductRepository productRepository,
-                                OrderService orderService, ProductVariantController productVariantController,
-                                WalletRepository walletRepository) {
+    public AdminOrderController(OrderRepository orderRepository, OrderService orderService, OrderAssembler orderAssembler,
+                                AdminOrderFeedService adminOrderFeedService) {
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
-        this.productVariantRepository = productVariantRepository;
-        this.productRepository = productRepository;
         this.orderService = orderService;
-        this.productVariantController = productVariantController;
-        this.walletRepository = walletRepository;
+        this.orderAssembler = orderAssembler;
+        this.adminOrderFeedService = adminOrderFeedService;
     }
 
+    /**
+     * @deprecated dùng /feed. Giữ dạng mảng JSON đầy đủ (mới nhất trước) cho màn hình admin cũ,
+     * nhưng đọc và ghi dần theo lô từ feed thay vì nạp toàn bộ bảng vào heap.
+     */
+    @Deprecated
     @GetMapping("/get")
-    public ResponseEntity<List<AdminOrderResponseDTO>> getAllOrders(@RequestParam(required = false) String status) {
-        List<Order> orders = (status != null && !status.isEmpty())
-                ? orderRepository.findByStatus(status)
-                : orderRepository.findAll();
-
-        List<AdminOrderResponseDTO> result = orders.stream().map(order -> {
-            AdminOrderResponseDTO dto = new AdminOrderResponseDTO();
-            dto.setId(order.getId());
-            dto.setUserAddress(order.getUserAddress());
-            dto.setOrderDate(order.getOrderDate());
-            dto.setStatus(order.getStatus());
-            dto.setTotalAmount(order.getTotalPrice());
-            dto.setPaymentMethod(order.getPaymentMethod());
-
-            List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-            List<OrderItemDetailDTO> itemDetails = new ArrayList<>();
-
-
-            for (OrderItem item : items) {
-                ProductVariant variant = productVariantRepository.findById(item.getProductVariantId()).orElse(null);
-                if (variant != null) {
-                    Product product = productRepository.findById(variant.getProductId()).orElse(null);
-                    List<String> images = JsonMapper.jsonToList(variant.getImage());
-                    System.out.println("images: " + images.get(0));
-                    if (product != null) {
-                        itemDetails.add(new OrderItemDetailDTO(
-                                product.getName(),
-                                variant.getColor(),
-                                variant.getSize(),
-                                item.getQuantity(),
-                                images.get(0),
-                                item.getPrice()
-                        ));
-                    }
-                }
-            }
+    public ResponseEntity<StreamingResponseBody> getAllOrders(@RequestParam(required = false) String status) {
+        OrderFeedQuery query = OrderFeedQuery.of(status, null, null, null);
+        StreamingResponseBody body = out -> adminOrderFeedService.exportArray(query, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-            dto.setItems(itemDetails);
-            return dto;
-        }).collect(Collectors.toList());
+    // Feed phân trang keyset: lọc theo trạng thái, user, khoảng ngày [from, to); truyền nextCursor để lấy trang sau
+    @GetMapping("/feed")
+    public ResponseEntity<?> getOrderFeed(@RequestParam(required = false) String status,
+                                          @RequestParam(required = false) Long userId,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(adminOrderFeedService.scroll(OrderFeedQuery.of(status, userId, from, to), cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-        return ResponseEntity.ok(result);
+    // Xuất toàn bộ đơn khớp bộ lọc dạng NDJSON (mỗi dòng một đơn), gửi dần theo lô
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(required = false) String status,
+                                                              @RequestParam(required = false) Long userId,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        OrderFeedQuery query = OrderFeedQuery.of(status, userId, from, to);
+        StreamingResponseBody body = out -> adminOrderFeedService.export(query, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.ndjson\"")
+                .body(body);
     }
 
     @GetMapping("/detail/{id}")
     public ResponseEntity<?> getOrderDetail(@PathVariable Long id) {
         Order order = orderRepository.findById(id).orElse(null);
-        AdminOrderResponseDTO dto = new AdminOrderResponseDTO();
-        dto.setId(order.getId());
-        dto.setUserAddress(order.getUserAddress());
-        dto.setOrderDate(order.getOrderDate());
-        dto.setStatus(order.getStatus());
-        dto.setTotalAmount(order.getTotalPrice());
-        dto.setPaymentMethod(order.getPaymentMethod());
-
-        List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-        List<OrderItemDetailDTO> itemDetails = new ArrayList<>();
-
-
-        for (OrderItem item : items) {
-            ProductVariant variant = productVariantRepository.findById(item.getProductVariantId()).orElse(null);
-            if (variant != null) {
-                Product product = productRepository.findById(variant.getProductId()).orElse(null);
-                List<String> images = JsonMapper.jsonToList(variant.getImage());
-                System.out.println("images: " + images.get(0));
-                if (product != null) {
-                    itemDetails.add(new OrderItemDetailDTO(
-                            product.getName(),
-                            variant.getColor(),
-                            variant.getSize(),
-                            item.getQuantity(),
-                            images.get(0),
-                            item.getPrice()
-                    ));
-                }
-            }
+        if (order == null) {
+            return ResponseEntity.notFound().build();
         }
-
-        dto.setItems(itemDetails);
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok(orderAssembler.assemble(List.of(order), true).get(0));
     }
 
     @PutMapping("/{orderId}/approve")
     public ResponseEntity<?> approveOrder(@PathVariable Long orderId) {
-        orderService.updateStatus(orderId, "CONFIRMED");
-        List<OrderItem> orderItem = orderItemRepository.findByOrderId(orderId);
-        for (OrderItem orderItem1 : orderItem) {
-            ProductVariant productVariant = productVariantRepository.findById(orderItem1.getProductVariantId()).orElse(null);
-            productVariant.setQuantity(productVariant.getQuantity()- orderItem1.getQuantity());
-            productVariantRepository.save(productVariant);
-            productVariantController.updateProductQuantity(productVariant.getProductId());
+        // Hàng đã được giữ (trừ kho) lúc đặt; đơn cũ chưa giữ hàng hoặc đã hết hạn giữ sẽ được giữ lại, thiếu hàng thì 409
+        if (orderService.transition(orderId, OrderStatus.CONFIRMED) == null) {
+            return ResponseEntity.notFound().build();
         }
-
         return ResponseEntity.ok().build();
     }
 
     @PutMapping("/{orderId}/cancel")
     public ResponseEntity<?> cancelOrder(@PathVariable Long orderId) {
-        orderService.updateStatus(orderId, "CANCELLED");
-        System.out.println("Order ID: " + orderId);
-        Order order = orderRepository.findById(orderId).orElse(null);
-        Wallet wallet = walletRepository.findByUserId(order.getUserId()).orElse(null);
-        System.out.println("Walletaaaa: " + wallet.getId());
-        System.out.println(order.getPaymentMethod());
-        if(order.getPaymentMethod().equals("wallet")){
-            wallet.setBalance(wallet.getBalance()+order.getTotalPrice());
-        }
-        walletRepository.save(wallet);
-        return ResponseEntity.ok(wallet.getBalance());
+        return ResponseEntity.ok(orderService.cancel(orderId));
     }
 
     @PutMapping("/{orderId}/assign")
     public ResponseEntity<?> assignOrder(@PathVariable Long orderId) {
-        orderService.updateStatus(orderId, "SHIPPING");
+        if (orderService.transition(orderId, OrderStatus.SHIPPING) == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok().build();
     }
 
+    // Thao tác hàng loạt: approve | assign | cancel cho tối đa OrderService.MAX_BULK_SIZE đơn, trả về kết quả từng đơn
+    @PutMapping("/bulk/{action}")
+    public ResponseEntity<?> bulkUpdate(@PathVariable String action, @RequestBody BulkOrderRequest request) {
+        String toStatus = switch (action) {
+            case "approve" -> OrderStatus.CONFIRMED;
+            case "assign" -> OrderStatus.SHIPPING;
+            case "cancel" -> OrderStatus.CANCELLED;
+            default -> null;
+        };
+        if (toStatus == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request == null || request.getOrderIds() == null) {
+            return ResponseEntity.badRequest().body("orderIds là bắt buộc");
+        }
+        try {
+            return ResponseEntity.ok(orderService.bulkTransition(request.getOrderIds(), toStatus));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
 }
@@ -1,11 +1,12 @@
 package com.he180773.testreact.controller.admin;
 
 
+import com.he180773.testreact.dto.ImportJobDTO;
 import com.he180773.testreact.dto.ProductDTO;
 import com.he180773.testreact.entity.Product;
-import com.he180773.testreact.entity.ProductVariant;
 import com.he180773.testreact.repository.ProductRepository;
-import com.he180773.testreact.repository.ProductVariantRepository;
+import com.he180773.testreact.service.CatalogImportService;
+import com.he180773.testreact.service.ProductAggregateService;
 import com.he180773.testreact.service.ProductService;
 import com.he180773.testreact.service.SizeService;
 import jakarta.servlet.http.HttpServletResponse;
@@ -16,7 +17,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,13 +30,16 @@ public class AdminProductController {
 
     private final ProductService productService;
     private final ProductRepository productRepository;
-    private final ProductVariantRepository productVariantRepository;
+    private final ProductAggregateService productAggregateService;
+    private final CatalogImportService catalogImportService;
 
     public AdminProductController(ProductService productService, ProductRepository productRepository,
-                               ProductVariantRepository productVariantRepository) {
+                               ProductAggregateService productAggregateService,
+                               CatalogImportService catalogImportService) {
         this.productService = productService;
         this.productRepository = productRepository;
-        this.productVariantRepository = productVariantRepository;
+        this.productAggregateService = productAggregateService;
+        this.catalogImportService = catalogImportService;
     }
 
     @GetMapping("/buddhists")
@@ -133,16 +139,40 @@ public class AdminProductController {
         return ResponseEntity.status(401).body(null);
     }
 
+    // Dựng lại các cột tổng hợp (giá min/max, số variant còn hàng, size/màu, ảnh đại diện) cho toàn bộ sản phẩm
+    @PostMapping("/recompute-aggregates")
+    public ResponseEntity<?> recomputeAggregates() {
+        productAggregateService.backfillPrimaryImages();
+        return ResponseEntity.ok(productAggregateService.recomputeAll());
+    }
+
+    // Import catalog từ file CSV/JSONL, chạy nền và trả về job để theo dõi tiến độ
+    @PostMapping("/import")
+    public ResponseEntity<?> importCatalog(@RequestParam("file") MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body("File rỗng");
+        }
+        try {
+            ImportJobDTO job = catalogImportService.submit(file);
+            return ResponseEntity.accepted().body(job);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Không đọc được file: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobDTO> getImportJob(@PathVariable String jobId) {
+        ImportJobDTO job = catalogImportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     @Transactional
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<Product> deleteProduct(HttpServletResponse response, @PathVariable Long id) {
-        List<ProductVariant> productVariants = productVariantRepository.findAllByProductId(id);
-        if(productVariants.size()>0) {
-            for(ProductVariant productVariant : productVariants) {
-                productVariantRepository.delete(productVariant);
-            }
-        }
-        productRepository.deleteById(id);
+        productAggregateService.delete(id);
         return ResponseEntity.status(200).body(null);
     }
 
@@ -1,10 +1,18 @@
 package com.he180773.testreact.controller.admin;
 
+import com.he180773.testreact.dto.RevenueCubeQuery;
 import com.he180773.testreact.dto.RevenueDTO;
+import com.he180773.testreact.dto.RevenuePointDTO;
+import com.he180773.testreact.dto.RevenueSliceDTO;
+import com.he180773.testreact.service.OrderSketchService;
+import com.he180773.testreact.service.RevenueCubeService;
+import com.he180773.testreact.service.RevenueRollupService;
 import com.he180773.testreact.service.RevenueService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,9 +23,16 @@ import java.util.Map;
 public class RevenueController {
 
     private final RevenueService revenueService;
+    private final RevenueRollupService revenueRollupService;
+    private final RevenueCubeService revenueCubeService;
+    private final OrderSketchService orderSketchService;
 
-    public RevenueController(RevenueService revenueService) {
+    public RevenueController(RevenueService revenueService, RevenueRollupService revenueRollupService,
+                             RevenueCubeService revenueCubeService, OrderSketchService orderSketchService) {
         this.revenueService = revenueService;
+        this.revenueRollupService = revenueRollupService;
+        this.revenueCubeService = revenueCubeService;
+        this.orderSketchService = orderSketchService;
     }
 
     @GetMapping("/get")
@@ -35,5 +50,131 @@ public class RevenueController {
         return ResponseEntity.ok(res);
     }
 
-}
+    // Chuỗi doanh thu gom trong DB: khoảng [from, to) hoặc bộ lọc year/month/day; granularity = day | week | month
+    @GetMapping("/series")
+    public ResponseEntity<?> getRevenueSeries(
+            @RequestParam(defaultValue = "DELIVERED") String status,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer day
+    ) {
+        if (!List.of("day", "week", "month").contains(granularity)) {
+            return ResponseEntity.badRequest().body("granularity phải là day, week hoặc month");
+        }
+        Range range = resolveRange(from, to, year, month, day, true);
+        if (range.error() != null) {
+            return range.error();
+        }
+
+        List<RevenuePointDTO> series = revenueService.getRevenueSeries(status, range.from(), range.to(), granularity);
+        Map<String, Object> res = new HashMap<>();
+        res.put("series", series);
+        res.put("totalRevenue", series.stream().mapToLong(RevenuePointDTO::getRevenue).sum());
+        res.put("orderCount", series.stream().mapToLong(RevenuePointDTO::getOrderCount).sum());
+        return ResponseEntity.ok(res);
+    }
 
+    // Dựng lại bảng tổng hợp doanh thu từ toàn bộ đơn (backfill/sửa lệch)
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<?> rebuildRollup() {
+        return ResponseEntity.ok(Map.of("rows", revenueRollupService.rebuild()));
+    }
+
+    /**
+     * Doanh thu theo dimension = category | collection | product | paymentMethod | day, đọc từ cube.
+     * Drill-down: truyền giá trị đã chọn ở mức trước làm bộ lọc, ví dụ
+     * ?dimension=category rồi ?dimension=product&category=Áo
+     */
+    @GetMapping("/cube")
+    public ResponseEntity<?> getRevenueCube(
+            @RequestParam(defaultValue = "category") String dimension,
+            @RequestParam(defaultValue = "DELIVERED") String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer day,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Long collectionId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String paymentMethod
+    ) {
+        if (!RevenueCubeQuery.isDimension(dimension)) {
+            return ResponseEntity.badRequest().body("dimension phải là category, collection, product, paymentMethod hoặc day");
+        }
+        Range range = resolveRange(from, to, year, month, day, false);
+        if (range.error() != null) {
+            return range.error();
+        }
+        RevenueCubeQuery query = new RevenueCubeQuery();
+        query.setDimension(dimension);
+        query.setStatus(status.isBlank() ? null : status);
+        query.setFrom(range.from());
+        query.setTo(range.to());
+        query.setCategory(category);
+        query.setCollectionId(collectionId);
+        query.setProductId(productId);
+        query.setPaymentMethod(paymentMethod);
+
+        List<RevenueSliceDTO> slices = revenueCubeService.slice(query);
+        Map<String, Object> res = new HashMap<>();
+        res.put("dimension", dimension);
+        res.put("slices", slices);
+        res.put("totalRevenue", slices.stream().mapToLong(RevenueSliceDTO::getRevenue).sum());
+        return ResponseEntity.ok(res);
+    }
+
+    // Dựng lại cube doanh thu từ các dòng đơn (backfill/sửa lệch)
+    @PostMapping("/cube/rebuild")
+    public ResponseEntity<?> rebuildCube() {
+        return ResponseEntity.ok(Map.of("cells", revenueCubeService.rebuild()));
+    }
+
+    // Số khách khác nhau và phân vị giá trị đơn (p50/p90/p99) gần đúng theo ngày hoặc tháng, gộp từ sketch từng ngày
+    @GetMapping("/sketch")
+    public ResponseEntity<?> getOrderSketchStats(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer day
+    ) {
+        if (!List.of("day", "month").contains(granularity)) {
+            return ResponseEntity.badRequest().body("granularity phải là day hoặc month");
+        }
+        Range range = resolveRange(from, to, year, month, day, true);
+        if (range.error() != null) {
+            return range.error();
+        }
+        return ResponseEntity.ok(orderSketchService.getStats(range.from(), range.to(), granularity));
+    }
+
+    // Dựng lại sketch từng ngày từ bảng Order
+    @PostMapping("/sketch/rebuild")
+    public ResponseEntity<?> rebuildSketches() {
+        return ResponseEntity.ok(Map.of("days", orderSketchService.rebuild()));
+    }
+
+    // Khoảng [from, to) đã chuẩn hóa, hoặc response trả ngay (400 thiếu tham số, mảng rỗng nếu ngày không tồn tại)
+    private record Range(LocalDate from, LocalDate to, ResponseEntity<?> error) { }
+
+    // year/month/day được ưu tiên hơn from/to; required = false cho phép khoảng mở (không lọc theo ngày)
+    private Range resolveRange(LocalDate from, LocalDate to, Integer year, Integer month, Integer day, boolean required) {
+        if (year != null) {
+            LocalDate[] range = revenueService.toRange(year, month, day);
+            if (range == null) {
+                return new Range(null, null, ResponseEntity.ok(List.of()));
+            }
+            return new Range(range[0], range[1], null);
+        }
+        if (required && (from == null || to == null)) {
+            return new Range(null, null, ResponseEntity.badRequest().body("Cần from và to, hoặc year"));
+        }
+        return new Range(from, to, null);
+    }
+
+}
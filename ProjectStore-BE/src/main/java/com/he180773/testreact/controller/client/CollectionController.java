@@ -1,9 +1,11 @@
 package com.he180773.testreact.controller.client;
 
 import com.he180773.testreact.dto.ProductDTO;
+import com.he180773.testreact.dto.ProductQuery;
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.repository.ProductRepository;
 import com.he180773.testreact.service.OrderService;
+import com.he180773.testreact.service.ProductQueryService;
 import com.he180773.testreact.service.ProductService;
 import com.he180773.testreact.service.SizeService;
 import jakarta.servlet.http.HttpServletResponse;
@@ -25,13 +27,16 @@ public class CollectionController {
     private final ProductRepository productRepository;
     private final SizeService sizeService;
     private final OrderService orderService;
+    private final ProductQueryService productQueryService;
 
     public CollectionController(ProductService productService, ProductRepository productRepository,
-                             SizeService sizeService, OrderService orderService) {
+                             SizeService sizeService, OrderService orderService,
+                             ProductQueryService productQueryService) {
         this.productService = productService;
         this.productRepository = productRepository;
         this.sizeService = sizeService;
         this.orderService = orderService;
+        this.productQueryService = productQueryService;
     }
 
 
@@ -61,36 +66,7 @@ public class CollectionController {
                                         @RequestParam(required = false) String name,
                                         @RequestParam(required = false) String category,
                                         @RequestParam(required = false) String priceRange) {
-        Pageable pageable ;
-
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts(category,name, minPrice, maxPrice, pageable);
+        return productQueryService.page(ProductQuery.of(category, name, priceRange, sort), page, size);
     }
 
 
@@ -1,11 +1,16 @@
 package com.he180773.testreact.controller.client;
 
 import com.he180773.testreact.dto.ProductDTO;
+import com.he180773.testreact.dto.ProductDetailDTO;
+import com.he180773.testreact.dto.ProductQuery;
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.repository.ProductRepository;
 import com.he180773.testreact.service.OrderService;
+import com.he180773.testreact.service.ProductDetailService;
+import com.he180773.testreact.service.ProductQueryService;
 import com.he180773.testreact.service.ProductService;
 import com.he180773.testreact.service.SizeService;
+import com.he180773.testreact.service.TopSellerService;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -26,13 +32,28 @@ public class ProductController {
     private final ProductRepository productRepository;
     private final SizeService sizeService;
     private final OrderService orderService;
+    private final ProductQueryService productQueryService;
+    private final TopSellerService topSellerService;
+    private final ProductDetailService productDetailService;
+
+    private static final Map<String, String> CATEGORY_SEGMENTS = Map.of(
+            "buddhists", "buddhist",
+            "bottoms", "bottom",
+            "robes", "robe",
+            "accessories", "accessory"
+    );
 
     public ProductController(ProductService productService, ProductRepository productRepository,
-                             SizeService sizeService, OrderService orderService) {
+                             SizeService sizeService, OrderService orderService,
+                             ProductQueryService productQueryService, TopSellerService topSellerService,
+                             ProductDetailService productDetailService) {
         this.productService = productService;
         this.productRepository = productRepository;
         this.sizeService = sizeService;
         this.orderService = orderService;
+        this.productQueryService = productQueryService;
+        this.topSellerService = topSellerService;
+        this.productDetailService = productDetailService;
     }
 
     @GetMapping("/buddhists")
@@ -89,193 +110,57 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
-
-    @GetMapping("/sort/buddhists")
-    public Page<Product> getBuddhistProducts(@RequestParam(defaultValue = "0") int page,
-                                        @RequestParam(defaultValue = "6") int size,
-                                        @RequestParam(required = false) String sort,
-                                        @RequestParam(required = false) String name,
-                                        @RequestParam(required = false) String priceRange) {
-        Pageable pageable ;
-
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
+    // Product + variants + ảnh + ma trận màu x size trong một lần gọi
+    @GetMapping("/{id}/detail")
+    public ResponseEntity<ProductDetailDTO> getProductDetailAggregate(@PathVariable Long id) {
+        ProductDetailDTO detail = productDetailService.getDetail(id);
+        if (detail == null) {
+            return ResponseEntity.notFound().build();
         }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts("buddhist",name, minPrice, maxPrice, pageable);
+        return ResponseEntity.ok(detail);
     }
 
-    @GetMapping("/sort")
-    public Page<Product> getAllProducts(@RequestParam(defaultValue = "0") int page,
-                                             @RequestParam(defaultValue = "6") int size,
-                                             @RequestParam(required = false) String sort,
-                                             @RequestParam(required = false) String name,
-                                        @RequestParam(required = false) String category,
-                                             @RequestParam(required = false) String priceRange) {
-        Pageable pageable ;
-
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
 
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts(category,name, minPrice, maxPrice, pageable);
-    }
-
-    @GetMapping("/sort/bottoms")
-    public Page<Product> getBottomProducts(@RequestParam(defaultValue = "0") int page,
-                                           @RequestParam(defaultValue = "6") int size,
-                                           @RequestParam(required = false) String sort,
+    @GetMapping("/query")
+    public ResponseEntity<?> queryProducts(@RequestParam(required = false) String category,
                                            @RequestParam(required = false) String name,
-                                           @RequestParam(required = false) String priceRange) {
-        Pageable pageable;
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts("bottom",name, minPrice, maxPrice, pageable);
-    }
-
-    @GetMapping("/sort/robes")
-    public Page<Product> getRobeProducts(@RequestParam(defaultValue = "0") int page,
-                                           @RequestParam(defaultValue = "6") int size,
+                                           @RequestParam(required = false) String priceRange,
+                                           @RequestParam(required = false) String productSize,
+                                           @RequestParam(required = false) String color,
                                            @RequestParam(required = false) String sort,
-                                           @RequestParam(required = false) String name,
-                                           @RequestParam(required = false) String priceRange) {
-        Pageable pageable;
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts("robe",name, minPrice, maxPrice, pageable);
-    }
-
-    @GetMapping("/sort/accessories")
-    public Page<Product> getAccessoryProducts(@RequestParam(defaultValue = "0") int page,
-                                              @RequestParam(defaultValue = "6") int size,
-                                              @RequestParam(required = false) String sort,
-                                              @RequestParam(required = false) String name,
-                                              @RequestParam(required = false) String priceRange) {
-        Pageable pageable;
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productRepository.findFilteredProducts("accessory",name, minPrice, maxPrice, pageable);
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "12") int size,
+                                           @RequestParam(defaultValue = "false") boolean newArrivals) {
+        ProductQuery query = ProductQuery.of(category, name, priceRange, sort);
+        query.setSize(productSize);
+        query.setColor(color);
+        if (newArrivals) {
+            query.setArrivedAfter(LocalDateTime.now().minusDays(30));
+        }
+        try {
+            return ResponseEntity.ok(productQueryService.scroll(query, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Các trang cũ theo số trang: /sort, /sort/buddhists, /sort/bottoms, /sort/robes, /sort/accessories
+    @GetMapping({"/sort", "/sort/{segment}"})
+    public ResponseEntity<Page<Product>> getSortedProducts(@PathVariable(required = false) String segment,
+                                                           @RequestParam(defaultValue = "0") int page,
+                                                           @RequestParam(defaultValue = "6") int size,
+                                                           @RequestParam(required = false) String sort,
+                                                           @RequestParam(required = false) String name,
+                                                           @RequestParam(required = false) String category,
+                                                           @RequestParam(required = false) String priceRange) {
+        if (segment != null) {
+            category = CATEGORY_SEGMENTS.get(segment);
+            if (category == null) {
+                return ResponseEntity.notFound().build();
+            }
+        }
+        ProductQuery query = ProductQuery.of(category, name, priceRange, sort);
+        return ResponseEntity.ok(productQueryService.page(query, page, size));
     }
 
     @GetMapping("/new-arrivals")
@@ -289,35 +174,9 @@ public class ProductController {
                                               @RequestParam(required = false) String sort,
                                               @RequestParam(required = false) String name,
                                               @RequestParam(required = false) String priceRange) {
-        Pageable pageable;
-        switch (sort.toLowerCase()) {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-        Integer minPrice = null;
-        Integer maxPrice = null;
-
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-        return productService.getNewArrivalsSorted(pageable,name, minPrice, maxPrice);
+        ProductQuery query = ProductQuery.of(null, name, priceRange, sort);
+        query.setArrivedAfter(LocalDateTime.now().minusDays(30));
+        return productQueryService.page(query, page, size);
     }
 
     @GetMapping("/sort/top-sellers")
@@ -326,37 +185,8 @@ public class ProductController {
                                              @RequestParam(required = false) String sort,
                                              @RequestParam(required = false) String name,
                                              @RequestParam(required = false) String priceRange) {
-
-        Pageable pageable;
-        switch (sort != null ? sort.toLowerCase() : "") {
-            case "price-asc":
-                pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-                break;
-            case "price-desc":
-                pageable = PageRequest.of(page, size, Sort.by("price").descending());
-                break;
-            case "name-asc":
-                pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-                break;
-            case "name-desc":
-                pageable = PageRequest.of(page, size, Sort.by("name").descending());
-                break;
-            default:
-                pageable = PageRequest.of(page, size);
-                break;
-        }
-
-        Integer minPrice = null;
-        Integer maxPrice = null;
-        if (priceRange != null && priceRange.contains("-")) {
-            String[] parts = priceRange.split("-");
-            try {
-                minPrice = Integer.parseInt(parts[0]);
-                maxPrice = Integer.parseInt(parts[1]);
-            } catch (NumberFormatException ignored) {}
-        }
-
-        return orderService.getTopSellersSorted(pageable, name, minPrice, maxPrice);
+        ProductQuery query = ProductQuery.of(null, name, priceRange, sort);
+        return topSellerService.getTopSellers(page, size, query.getName(), query.getMinPrice(), query.getMaxPrice(), sort);
     }
 
 
@@ -369,12 +199,15 @@ public class ProductController {
         product.setArrivedDate(dto.getArrivedDate());
         product.setThumbnailImage(dto.getThumbnailImage());
         product.setCreatedAt(LocalDateTime.now());
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productService.onProductChanged(saved.getId());
+        return saved;
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String query) {
-        List<Product> products = productRepository.findAllByNameContains(query); // hoặc tên khác
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String query,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        List<Product> products = productService.search(query, Math.max(1, Math.min(limit, 50)));
         return ResponseEntity.ok(products);
     }
 
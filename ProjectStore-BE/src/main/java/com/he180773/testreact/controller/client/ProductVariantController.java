@@ -1,21 +1,21 @@
 package com.he180773.testreact.controller.client;
 
+import com.he180773.testreact.dto.ProductDetailDTO;
 import com.he180773.testreact.dto.ProductVariantDTO;
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.entity.ProductVariant;
 import com.he180773.testreact.mapper.JsonMapper;
 import com.he180773.testreact.repository.ProductRepository;
 import com.he180773.testreact.repository.ProductVariantRepository;
+import com.he180773.testreact.service.ProductAggregateService;
+import com.he180773.testreact.service.ProductDetailService;
 import com.he180773.testreact.service.ProductService;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
@@ -25,31 +25,26 @@ public class ProductVariantController {
 
     private final ProductVariantRepository productVariantRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final ProductDetailService productDetailService;
+    private final ProductAggregateService productAggregateService;
 
-    public ProductVariantController(ProductVariantRepository productVariantRepository, ProductRepository productRepository) {
+    public ProductVariantController(ProductVariantRepository productVariantRepository, ProductRepository productRepository,
+                                    ProductService productService, ProductDetailService productDetailService,
+                                    ProductAggregateService productAggregateService) {
         this.productVariantRepository = productVariantRepository;
         this.productRepository = productRepository;
+        this.productService = productService;
+        this.productDetailService = productDetailService;
+        this.productAggregateService = productAggregateService;
     }
 
     @GetMapping("/product/{id}")
     public ResponseEntity<List<ProductVariantDTO>> getTops(HttpServletResponse response, @PathVariable Long id) {
-
-        List<ProductVariant> productVariantss= productVariantRepository.findAllByProductId(id);
-        List<ProductVariantDTO> variantDTOs = productVariantss.stream().map(variant -> {
-            List<String> images = JsonMapper.jsonToList(variant.getImage());
-
-            return new ProductVariantDTO(
-                    variant.getId(),
-                    variant.getColor(),
-                    variant.getSize(),
-                    variant.getPrice(),
-                    variant.getQuantity(),
-                    variant.getProductId(),
-                    images
-            );
-        }).collect(Collectors.toList());
-        if(productVariantss.size()>0) {
-            return ResponseEntity.ok(variantDTOs);
+        // Dùng chung cache trang chi tiết: ảnh đã được parse sẵn, không đọc lại JSON mỗi request
+        ProductDetailDTO detail = productDetailService.getDetail(id);
+        if(detail != null && detail.getVariants().size()>0) {
+            return ResponseEntity.ok(detail.getVariants());
         }
         return ResponseEntity.status(401).body(null);
     }
@@ -60,41 +55,27 @@ public class ProductVariantController {
     public ResponseEntity<?> addNew(@RequestBody ProductVariantDTO dto
     ) {
         Optional<Product> productOpt = productRepository.findById(dto.getProductId());
-        Product product = productOpt.get();
-        String images = JsonMapper.listToJson(dto.getImages());
-
         if (!productOpt.isPresent()) {
             return ResponseEntity.badRequest().body("Sản phẩm không tồn tại");
         }
+        Product product = productOpt.get();
 
         ProductVariant variant = new ProductVariant();
         variant.setColor(dto.getColor());
         variant.setSize(dto.getSize());
         variant.setPrice(dto.getPrice());
         variant.setQuantity(dto.getQuantity());
-        variant.setImage(images);
+        variant.setImageList(dto.getImages());
         variant.setProductId(productOpt.get().getId());
 
         productVariantRepository.save(variant);
-
-        // Lấy lại danh sách tất cả các variant để cập nhật giá sản phẩm
-        List<ProductVariant> allVariants = productVariantRepository.findAllByProductId(dto.getProductId());
-
-
-            int minPrice = allVariants.stream()
-                    .mapToInt(ProductVariant::getPrice)
-                    .min()
-                    .orElse(dto.getPrice()); // fallback nếu có lỗi (hiếm)
-
-            product.setPrice(minPrice);
-            updateProductQuantity(product.getId());
-            productRepository.save(product);
-
+        // Giá sản phẩm (giá nhỏ nhất của các variant) được tính lại trong DB cùng các cột tổng hợp khác
+        updateProductQuantity(product.getId());
 
         // === Trả về giá mới để frontend dùng luôn ===
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Tạo mẫu thành công");
-        response.put("newPrice", minPrice);
+        response.put("newPrice", productRepository.findById(product.getId()).map(Product::getPrice).orElse(null));
         return ResponseEntity.ok(response);
     }
 
@@ -110,12 +91,12 @@ public class ProductVariantController {
 
     @PutMapping("/update-images/{id}")
     public ResponseEntity<?> updateImages(@PathVariable Long id, @RequestBody List<String> images) {
-        String imageJson = JsonMapper.listToJson(images);
         List<ProductVariant> variants = productVariantRepository.findAllById(id);
         for(ProductVariant variant : variants) {
-            variant.setImage(imageJson);
+            variant.setImageList(images);
         }
         productVariantRepository.saveAll(variants);
+        variants.stream().map(ProductVariant::getProductId).distinct().forEach(productService::onProductChanged);
         return ResponseEntity.ok().build();
     }
 
@@ -132,14 +113,7 @@ public class ProductVariantController {
 
 
     public void updateProductQuantity(Long id){
-        Product product = productRepository.findById(id).get();
-        List<ProductVariant> variants = productVariantRepository.findAllByProductId(id);
-        int quantity = 0;
-        for(ProductVariant variant : variants) {
-            quantity += variant.getQuantity();
-        }
-        product.setTotalQuantity(quantity);
-        productRepository.save(product);
+        productAggregateService.recompute(id);
     }
 
 
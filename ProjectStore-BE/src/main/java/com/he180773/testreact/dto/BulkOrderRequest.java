@@ -0,0 +1,15 @@
+package com.he180773.testreact.dto;
+
+import java.util.List;
+
+public class BulkOrderRequest {
+    private List<Long> orderIds;
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+}
@@ -0,0 +1,48 @@
+package com.he180773.testreact.dto;
+
+// Kết quả của từng đơn trong một thao tác hàng loạt; status là trạng thái của đơn sau thao tác (null nếu không có đơn)
+public class BulkOrderResultDTO {
+    private Long orderId;
+    private boolean success;
+    private String status;
+    private String message;
+
+    public BulkOrderResultDTO(Long orderId, boolean success, String status, String message) {
+        this.orderId = orderId;
+        this.success = success;
+        this.status = status;
+        this.message = message;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,112 @@
+package com.he180773.testreact.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tiến độ của một lần import catalog, được cập nhật từ luồng import và đọc từ API
+public class ImportJobDTO {
+
+    private static final int MAX_ERRORS = 50;
+
+    private final String id;
+    private final String fileName;
+    private volatile String status = "QUEUED";
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong productsCreated = new AtomicLong();
+    private final AtomicLong variantsCreated = new AtomicLong();
+    private final AtomicLong productsSkipped = new AtomicLong();
+    private final AtomicLong rejectedLines = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    public ImportJobDTO(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    public void reject(long line, String message) {
+        rejectedLines.incrementAndGet();
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Dòng " + line + ": " + message);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    public void incrementLinesRead() {
+        linesRead.incrementAndGet();
+    }
+
+    public long getProductsCreated() {
+        return productsCreated.get();
+    }
+
+    public void incrementProductsCreated() {
+        productsCreated.incrementAndGet();
+    }
+
+    public long getVariantsCreated() {
+        return variantsCreated.get();
+    }
+
+    public void addVariantsCreated(long count) {
+        variantsCreated.addAndGet(count);
+    }
+
+    // Sản phẩm trùng (name, category, collection) với sản phẩm đã có, không insert lại
+    public long getProductsSkipped() {
+        return productsSkipped.get();
+    }
+
+    public void incrementProductsSkipped() {
+        productsSkipped.incrementAndGet();
+    }
+
+    public long getRejectedLines() {
+        return rejectedLines.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.he180773.testreact.dto;
+
+// Số liệu của một phút: số đơn đặt, doanh thu của các đơn đó và số đơn bị hủy; timestamp là đầu phút (epoch millis)
+public class MetricsPointDTO {
+    private long timestamp;
+    private long orders;
+    private long revenue;
+    private long cancellations;
+
+    public MetricsPointDTO(long timestamp, long orders, long revenue, long cancellations) {
+        this.timestamp = timestamp;
+        this.orders = orders;
+        this.revenue = revenue;
+        this.cancellations = cancellations;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(long revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    public void setCancellations(long cancellations) {
+        this.cancellations = cancellations;
+    }
+}
@@ -0,0 +1,54 @@
+package com.he180773.testreact.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Bộ lọc của feed đơn hàng admin; khoảng ngày là nửa mở [from, to)
+public class OrderFeedQuery {
+
+    private String status;
+    private Long userId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public static OrderFeedQuery of(String status, Long userId, LocalDate from, LocalDate to) {
+        OrderFeedQuery query = new OrderFeedQuery();
+        query.setStatus(status == null || status.isBlank() ? null : status.trim());
+        query.setUserId(userId);
+        query.setFrom(from != null ? from.atStartOfDay() : null);
+        query.setTo(to != null ? to.atStartOfDay() : null);
+        return query;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,68 @@
+package com.he180773.testreact.dto;
+
+// Thống kê gần đúng của một kỳ (ngày yyyy-MM-dd hoặc tháng yyyy-MM): số khách khác nhau ~1.6%, phân vị giá trị đơn ~1%
+public class OrderSketchStatsDTO {
+    private String period;
+    private long orders;
+    private long distinctCustomers;
+    private long p50;
+    private long p90;
+    private long p99;
+
+    public OrderSketchStatsDTO(String period, long orders, long distinctCustomers, long p50, long p90, long p99) {
+        this.period = period;
+        this.orders = orders;
+        this.distinctCustomers = distinctCustomers;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public long getDistinctCustomers() {
+        return distinctCustomers;
+    }
+
+    public void setDistinctCustomers(long distinctCustomers) {
+        this.distinctCustomers = distinctCustomers;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public void setP50(long p50) {
+        this.p50 = p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public void setP90(long p90) {
+        this.p90 = p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public void setP99(long p99) {
+        this.p99 = p99;
+    }
+}
@@ -0,0 +1,39 @@
+package com.he180773.testreact.dto;
+
+import java.util.List;
+
+public class OrderSliceDTO {
+    private List<AdminOrderResponseDTO> items;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public OrderSliceDTO(List<AdminOrderResponseDTO> items, String nextCursor, boolean hasNext) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<AdminOrderResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<AdminOrderResponseDTO> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,84 @@
+package com.he180773.testreact.dto;
+
+import com.he180773.testreact.entity.Product;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductDetailDTO {
+    private Product product;
+    private List<ProductVariantDTO> variants;
+    private List<String> colors;
+    private List<String> sizes;
+    // màu -> size -> số lượng còn
+    private Map<String, Map<String, Integer>> availability;
+    private Integer minPrice;
+    private Integer maxPrice;
+
+    public ProductDetailDTO(Product product, List<ProductVariantDTO> variants, List<String> colors, List<String> sizes,
+                            Map<String, Map<String, Integer>> availability, Integer minPrice, Integer maxPrice) {
+        this.product = product;
+        this.variants = variants;
+        this.colors = colors;
+        this.sizes = sizes;
+        this.availability = availability;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public List<ProductVariantDTO> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<ProductVariantDTO> variants) {
+        this.variants = variants;
+    }
+
+    public List<String> getColors() {
+        return colors;
+    }
+
+    public void setColors(List<String> colors) {
+        this.colors = colors;
+    }
+
+    public List<String> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(List<String> sizes) {
+        this.sizes = sizes;
+    }
+
+    public Map<String, Map<String, Integer>> getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(Map<String, Map<String, Integer>> availability) {
+        this.availability = availability;
+    }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Integer minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Integer getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Integer maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+}
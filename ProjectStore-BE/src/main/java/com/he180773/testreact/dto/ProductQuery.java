@@ -0,0 +1,111 @@
+package com.he180773.testreact.dto;
+
+import java.time.LocalDateTime;
+
+public class ProductQuery {
+
+    public enum SortOrder {
+        NEWEST, PRICE_ASC, PRICE_DESC, NAME_ASC, NAME_DESC;
+
+        // "price-asc" -> PRICE_ASC, null/không hợp lệ -> NEWEST
+        public static SortOrder parse(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return NEWEST;
+            }
+            try {
+                return valueOf(sort.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return NEWEST;
+            }
+        }
+    }
+
+    private String category;
+    private String name;
+    private Integer minPrice;
+    private Integer maxPrice;
+    private LocalDateTime arrivedAfter;
+    private String size;
+    private String color;
+    private SortOrder sort = SortOrder.NEWEST;
+
+    public static ProductQuery of(String category, String name, String priceRange, String sort) {
+        ProductQuery query = new ProductQuery();
+        query.setCategory(category == null || category.isBlank() ? null : category);
+        query.setName(name == null || name.isBlank() ? null : name.trim());
+        query.setSort(SortOrder.parse(sort));
+
+        if (priceRange != null && priceRange.contains("-")) {
+            String[] parts = priceRange.split("-");
+            try {
+                query.setMinPrice(Integer.parseInt(parts[0]));
+                query.setMaxPrice(Integer.parseInt(parts[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored) {}
+        }
+        return query;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Integer minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Integer getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Integer maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public LocalDateTime getArrivedAfter() {
+        return arrivedAfter;
+    }
+
+    public void setArrivedAfter(LocalDateTime arrivedAfter) {
+        this.arrivedAfter = arrivedAfter;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public void setSize(String size) {
+        this.size = size == null || size.isBlank() ? null : size;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color == null || color.isBlank() ? null : color;
+    }
+
+    public SortOrder getSort() {
+        return sort;
+    }
+
+    public void setSort(SortOrder sort) {
+        this.sort = sort;
+    }
+}
@@ -0,0 +1,41 @@
+package com.he180773.testreact.dto;
+
+import com.he180773.testreact.entity.Product;
+
+import java.util.List;
+
+public class ProductSliceDTO {
+    private List<Product> items;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public ProductSliceDTO(List<Product> items, String nextCursor, boolean hasNext) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Product> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
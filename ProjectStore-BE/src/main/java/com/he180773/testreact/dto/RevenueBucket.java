@@ -0,0 +1,14 @@
+package com.he180773.testreact.dto;
+
+// Projection của các query doanh thu gom nhóm: một dòng cho mỗi ngày/tháng, không tải entity Order
+public interface RevenueBucket {
+    Integer getBucketYear();
+
+    Integer getBucketMonth();
+
+    Integer getBucketDay();
+
+    Long getOrderCount();
+
+    Long getRevenue();
+}
@@ -0,0 +1,91 @@
+package com.he180773.testreact.dto;
+
+import java.time.LocalDate;
+
+// Lát cắt cube doanh thu: gom theo dimension trong khoảng [from, to); các bộ lọc còn lại dùng để drill-down
+public class RevenueCubeQuery {
+
+    public static final String CATEGORY = "category";
+    public static final String COLLECTION = "collection";
+    public static final String PRODUCT = "product";
+    public static final String PAYMENT_METHOD = "paymentMethod";
+    public static final String DAY = "day";
+
+    private String dimension;
+    private String status;
+    private LocalDate from;
+    private LocalDate to;
+    private String category;
+    private Long collectionId;
+    private Long productId;
+    private String paymentMethod;
+
+    public static boolean isDimension(String dimension) {
+        return CATEGORY.equals(dimension) || COLLECTION.equals(dimension) || PRODUCT.equals(dimension)
+                || PAYMENT_METHOD.equals(dimension) || DAY.equals(dimension);
+    }
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(String dimension) {
+        this.dimension = dimension;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Long getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(Long collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+}
@@ -0,0 +1,38 @@
+package com.he180773.testreact.dto;
+
+public class RevenuePointDTO {
+    // yyyy-MM-dd cho ngày, ngày thứ Hai đầu tuần cho tuần, yyyy-MM cho tháng
+    private String period;
+    private long orderCount;
+    private long revenue;
+
+    public RevenuePointDTO(String period, long orderCount, long revenue) {
+        this.period = period;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(long revenue) {
+        this.revenue = revenue;
+    }
+}
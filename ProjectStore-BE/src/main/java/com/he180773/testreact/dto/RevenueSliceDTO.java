@@ -0,0 +1,48 @@
+package com.he180773.testreact.dto;
+
+// Một phần tử của lát cắt cube doanh thu: key là giá trị của chiều đang xem (danh mục, id bộ sưu tập, id sản phẩm, ...)
+public class RevenueSliceDTO {
+    private String key;
+    private String label;
+    private long quantity;
+    private long revenue;
+
+    public RevenueSliceDTO(String key, String label, long quantity, long revenue) {
+        this.key = key;
+        this.label = label;
+        this.quantity = quantity;
+        this.revenue = revenue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(long revenue) {
+        this.revenue = revenue;
+    }
+}
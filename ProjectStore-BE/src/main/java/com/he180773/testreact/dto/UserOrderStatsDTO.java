@@ -0,0 +1,69 @@
+package com.he180773.testreact.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Map;
+
+// Thống kê đơn hàng của một user theo trạng thái (số đơn, tổng tiền)
+public class UserOrderStatsDTO {
+
+    public static class StatusTotal {
+        private final long count;
+        private final long totalPrice;
+
+        public StatusTotal(long count, long totalPrice) {
+            this.count = count;
+            this.totalPrice = totalPrice;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalPrice() {
+            return totalPrice;
+        }
+    }
+
+    private final Long userId;
+    private final Map<String, StatusTotal> byStatus;
+    private final long orderCount;
+    private final long deliveredCount;
+    private final long totalSpent;
+    @JsonIgnore
+    private final long stamp;
+
+    public UserOrderStatsDTO(Long userId, Map<String, StatusTotal> byStatus, long stamp) {
+        this.userId = userId;
+        this.byStatus = byStatus;
+        this.stamp = stamp;
+        this.orderCount = byStatus.values().stream().mapToLong(StatusTotal::getCount).sum();
+        StatusTotal delivered = byStatus.get("DELIVERED");
+        this.deliveredCount = delivered != null ? delivered.getCount() : 0;
+        this.totalSpent = delivered != null ? delivered.getTotalPrice() : 0;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Map<String, StatusTotal> getByStatus() {
+        return byStatus;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public long getTotalSpent() {
+        return totalSpent;
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+}
@@ -0,0 +1,50 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Bảng tổng hợp số đơn và doanh thu theo (ngày đặt, trạng thái), cập nhật dần theo trạng thái đơn
+@Entity
+@Table(name = "[DailyRevenue]")
+public class DailyRevenue {
+    @EmbeddedId
+    private DailyRevenueId id;
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+    @Column(name = "revenue", nullable = false)
+    private Long revenue;
+
+    public DailyRevenue() {
+    }
+
+    public DailyRevenue(LocalDate revenueDate, String status, Long orderCount, Long revenue) {
+        this.id = new DailyRevenueId(revenueDate, status);
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+
+    public DailyRevenueId getId() {
+        return id;
+    }
+
+    public void setId(DailyRevenueId id) {
+        this.id = id;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Long revenue) {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,52 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class DailyRevenueId implements Serializable {
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+
+    public DailyRevenueId() {
+    }
+
+    public DailyRevenueId(LocalDate revenueDate, String status) {
+        this.revenueDate = revenueDate;
+        this.status = status;
+    }
+
+    public LocalDate getRevenueDate() {
+        return revenueDate;
+    }
+
+    public void setRevenueDate(LocalDate revenueDate) {
+        this.revenueDate = revenueDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DailyRevenueId other)) return false;
+        return Objects.equals(revenueDate, other.revenueDate) && Objects.equals(status, other.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revenueDate, status);
+    }
+}
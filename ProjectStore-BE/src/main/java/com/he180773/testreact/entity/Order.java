@@ -6,7 +6,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "[Order]")
+@Table(name = "[Order]", indexes = {
+        @Index(name = "ix_order_user_date", columnList = "user_id, order_date"),
+        @Index(name = "ix_order_status_date", columnList = "status, order_date")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +27,9 @@ public class Order {
     private String status;
     @Column(name = "total_price")
     private Integer totalPrice;
+    // Tăng sau mỗi lần đổi trạng thái; đơn cũ có thể là NULL (coi như 0)
+    @Column(name = "version")
+    private Long version;
 
     public Long getId() {
         return id;
@@ -80,4 +86,12 @@ public class Order {
     public void setTotalPrice(Integer totalPrice) {
         this.totalPrice = totalPrice;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -4,10 +4,14 @@ package com.he180773.testreact.entity;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "[Orderitem]")
+@Table(name = "[Orderitem]", indexes = {
+        @Index(name = "ix_order_item_order", columnList = "order_id")
+})
 public class OrderItem {
+    // Sequence pooled: mỗi lần gọi DB cấp 50 id, nên các dòng của một đơn được insert theo batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "ID", nullable = false)
     private Long id;
     @Column(name = "order_id")
@@ -18,6 +22,24 @@ public class OrderItem {
     private Integer quantity;
     @Column(name = "price")
     private Integer price;
+    // Ảnh chụp sản phẩm lúc đặt: đọc đơn không cần join Product/ProductVariant và không hỏng khi sản phẩm bị sửa/xóa.
+    // Dòng đặt trước khi có các cột này để NULL (xem db/order_item_snapshot.sql)
+    @Column(name = "product_id")
+    private Long productId;
+    @Column(name = "product_name", length = 50)
+    private String productName;
+    @Column(name = "category", length = 50)
+    private String category;
+    @Column(name = "collection_id")
+    private Long collectionId;
+    @Column(name = "color", length = 50)
+    private String color;
+    @Column(name = "size", length = 50)
+    private String size;
+    @Column(name = "image", length = 500)
+    private String image;
+    @Column(name = "unit_price")
+    private Integer unitPrice;
 
     public Long getId() {
         return id;
@@ -58,4 +80,72 @@ public class OrderItem {
     public void setPrice(Integer price) {
         this.price = price;
     }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Long getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(Long collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public void setSize(String size) {
+        this.size = size;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+
+    public Integer getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(Integer unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public boolean hasSnapshot() {
+        return productName != null;
+    }
 }
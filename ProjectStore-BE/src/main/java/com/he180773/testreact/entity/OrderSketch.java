@@ -0,0 +1,62 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Sketch của các đơn đặt trong một ngày: HyperLogLog số khách khác nhau và sketch phân vị giá trị đơn (xem OrderSketchService)
+@Entity
+@Table(name = "[OrderSketch]")
+public class OrderSketch {
+    @Id
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+    @Column(name = "user_hll", length = 5000)
+    private byte[] userHll;
+    @Column(name = "price_sketch", length = 16000)
+    private byte[] priceSketch;
+
+    public OrderSketch() {
+    }
+
+    public OrderSketch(LocalDate bucketDate, Long orderCount, byte[] userHll, byte[] priceSketch) {
+        this.bucketDate = bucketDate;
+        this.orderCount = orderCount;
+        this.userHll = userHll;
+        this.priceSketch = priceSketch;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public void setBucketDate(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public byte[] getUserHll() {
+        return userHll;
+    }
+
+    public void setUserHll(byte[] userHll) {
+        this.userHll = userHll;
+    }
+
+    public byte[] getPriceSketch() {
+        return priceSketch;
+    }
+
+    public void setPriceSketch(byte[] priceSketch) {
+        this.priceSketch = priceSketch;
+    }
+}
@@ -0,0 +1,31 @@
+package com.he180773.testreact.entity;
+
+import java.util.Map;
+import java.util.Set;
+
+// Các trạng thái của Order và những bước chuyển hợp lệ
+public final class OrderStatus {
+
+    public static final String PENDING = "PENDING";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String SHIPPING = "SHIPPING";
+    public static final String DELIVERED = "DELIVERED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            PENDING, Set.of(CONFIRMED, CANCELLED),
+            CONFIRMED, Set.of(SHIPPING, CANCELLED),
+            SHIPPING, Set.of(DELIVERED, CANCELLED)
+    );
+
+    private OrderStatus() {
+    }
+
+    // Map.of/Set.of ném NullPointerException với null, nên đơn cũ chưa có status phải được chặn trước
+    public static boolean canTransition(String from, String to) {
+        if (from == null || to == null) {
+            return false;
+        }
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+}
@@ -7,7 +7,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "[Product]")
+@Table(name = "[Product]", indexes = {
+        @Index(name = "ix_product_category_min_price", columnList = "CATEGORY, min_price"),
+        @Index(name = "ix_product_min_price", columnList = "min_price"),
+        @Index(name = "ix_product_max_price", columnList = "max_price"),
+        // Khóa tự nhiên dùng để import catalog bỏ qua sản phẩm đã có (xem db/product_natural_key.sql)
+        @Index(name = "ux_product_natural_key", columnList = "NAME, CATEGORY, collection_id", unique = true)
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +37,13 @@ public class Product {
     private int createdBy;
     @Column(name = "collection_id", nullable = true)
     private Long collectionId;
+    // Các cột tổng hợp từ ProductVariant, cập nhật mỗi khi variant thay đổi
+    @Column(name = "min_price", nullable = true)
+    private Integer minPrice;
+    @Column(name = "max_price", nullable = true)
+    private Integer maxPrice;
+    @Column(name = "in_stock_variant_count", nullable = true)
+    private Integer inStockVariantCount;
 
     public Long getId() {
         return id;
@@ -111,4 +124,28 @@ public class Product {
     public void setCollectionId(Long collectionId) {
         this.collectionId = collectionId;
     }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Integer minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Integer getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Integer maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getInStockVariantCount() {
+        return inStockVariantCount;
+    }
+
+    public void setInStockVariantCount(Integer inStockVariantCount) {
+        this.inStockVariantCount = inStockVariantCount;
+    }
 }
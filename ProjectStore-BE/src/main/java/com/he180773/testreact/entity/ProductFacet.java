@@ -0,0 +1,90 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Size/màu còn hàng của từng sản phẩm, để lọc bằng index thay vì quét ProductVariant
+@Entity
+@Table(name = "[ProductFacet]", indexes = {
+        @Index(name = "ix_product_facet_lookup", columnList = "facet_type, facet_value, product_id")
+})
+@IdClass(ProductFacet.Key.class)
+public class ProductFacet {
+
+    public static final String SIZE = "SIZE";
+    public static final String COLOR = "COLOR";
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    @Id
+    @Column(name = "facet_type", length = 10, nullable = false)
+    private String facetType;
+    @Id
+    @Column(name = "facet_value", length = 50, nullable = false)
+    private String facetValue;
+
+    public ProductFacet() {
+    }
+
+    public ProductFacet(Long productId, String facetType, String facetValue) {
+        this.productId = productId;
+        this.facetType = facetType;
+        this.facetValue = facetValue;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getFacetType() {
+        return facetType;
+    }
+
+    public void setFacetType(String facetType) {
+        this.facetType = facetType;
+    }
+
+    public String getFacetValue() {
+        return facetValue;
+    }
+
+    public void setFacetValue(String facetValue) {
+        this.facetValue = facetValue;
+    }
+
+    public static class Key implements Serializable {
+        private Long productId;
+        private String facetType;
+        private String facetValue;
+
+        public Key() {
+        }
+
+        public Key(Long productId, String facetType, String facetValue) {
+            this.productId = productId;
+            this.facetType = facetType;
+            this.facetValue = facetValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(productId, key.productId)
+                    && Objects.equals(facetType, key.facetType)
+                    && Objects.equals(facetValue, key.facetValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, facetType, facetValue);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+// Bảng tổng hợp số lượng đã bán (đơn DELIVERED) theo sản phẩm, cập nhật dần theo trạng thái đơn
+@Entity
+@Table(name = "[ProductSales]")
+public class ProductSales {
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    @Column(name = "sold_quantity", nullable = false)
+    private Long soldQuantity;
+
+    public ProductSales() {
+    }
+
+    public ProductSales(Long productId, Long soldQuantity) {
+        this.productId = productId;
+        this.soldQuantity = soldQuantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getSoldQuantity() {
+        return soldQuantity;
+    }
+
+    public void setSoldQuantity(Long soldQuantity) {
+        this.soldQuantity = soldQuantity;
+    }
+}
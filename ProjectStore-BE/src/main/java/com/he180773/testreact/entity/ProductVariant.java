@@ -1,9 +1,15 @@
 package com.he180773.testreact.entity;
 
+import com.he180773.testreact.mapper.JsonMapper;
 import jakarta.persistence.*;
 
+import java.util.List;
+
 @Entity
-@Table(name = "[Productvariant]")
+@Table(name = "[Productvariant]", indexes = {
+        // Lọc giá theo từng variant: EXISTS seek theo product_id rồi lọc price ngay trong index
+        @Index(name = "ix_product_variant_product_price", columnList = "product_id, price")
+})
 public class ProductVariant {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +27,9 @@ public class ProductVariant {
     private Integer quantity;
     @Column(name = "image",  columnDefinition = "TEXT")
     private String image;
+    // Ảnh đầu tiên trong image, lưu riêng để các màn hình danh sách không phải parse JSON
+    @Column(name = "primary_image", length = 500)
+    private String primaryImage;
 
     public Long getId() {
         return id;
@@ -77,4 +86,27 @@ public class ProductVariant {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    public String getPrimaryImage() {
+        return primaryImage;
+    }
+
+    public void setPrimaryImage(String primaryImage) {
+        this.primaryImage = primaryImage;
+    }
+
+    // Ghi danh sách ảnh và cập nhật luôn ảnh đại diện
+    public void setImageList(List<String> images) {
+        this.image = JsonMapper.listToJson(images);
+        this.primaryImage = images != null && !images.isEmpty() ? images.get(0) : null;
+    }
+
+    // Dòng cũ chưa có primary_image thì mới phải parse JSON
+    public String resolvePrimaryImage() {
+        if (primaryImage != null || image == null || image.isEmpty()) {
+            return primaryImage;
+        }
+        List<String> images = JsonMapper.jsonToList(image);
+        return images.isEmpty() ? null : images.get(0);
+    }
 }
@@ -0,0 +1,87 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Một ô của cube doanh thu: (ngày đặt, trạng thái, sản phẩm, phương thức thanh toán) -> số lượng, doanh thu.
+ * Danh mục, bộ sưu tập và tên sản phẩm lấy từ ảnh chụp trên dòng đơn, để lọc/gom theo các chiều đó
+ * mà không join Product (và vẫn đúng khi sản phẩm đã bị sửa hoặc xóa).
+ */
+@Entity
+@Table(name = "[RevenueCube]", indexes = {
+        @Index(name = "ix_revenue_cube_status_date", columnList = "status, revenue_date")
+})
+public class RevenueCube {
+    @EmbeddedId
+    private RevenueCubeId id;
+    @Column(name = "category", length = 50)
+    private String category;
+    @Column(name = "collection_id")
+    private Long collectionId;
+    @Column(name = "product_name", length = 50)
+    private String productName;
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+    @Column(name = "revenue", nullable = false)
+    private Long revenue;
+
+    public RevenueCube() {
+    }
+
+    public RevenueCube(RevenueCubeId id, String category, Long collectionId, String productName, Long quantity, Long revenue) {
+        this.id = id;
+        this.category = category;
+        this.collectionId = collectionId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.revenue = revenue;
+    }
+
+    public RevenueCubeId getId() {
+        return id;
+    }
+
+    public void setId(RevenueCubeId id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Long getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(Long collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Long revenue) {
+        this.revenue = revenue;
+    }
+}
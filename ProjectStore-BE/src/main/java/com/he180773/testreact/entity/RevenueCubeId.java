@@ -0,0 +1,75 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class RevenueCubeId implements Serializable {
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    @Column(name = "payment_method", length = 50, nullable = false)
+    private String paymentMethod;
+
+    public RevenueCubeId() {
+    }
+
+    public RevenueCubeId(LocalDate revenueDate, String status, Long productId, String paymentMethod) {
+        this.revenueDate = revenueDate;
+        this.status = status;
+        this.productId = productId;
+        this.paymentMethod = paymentMethod;
+    }
+
+    public LocalDate getRevenueDate() {
+        return revenueDate;
+    }
+
+    public void setRevenueDate(LocalDate revenueDate) {
+        this.revenueDate = revenueDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RevenueCubeId other)) return false;
+        return Objects.equals(revenueDate, other.revenueDate) && Objects.equals(status, other.status)
+                && Objects.equals(productId, other.productId) && Objects.equals(paymentMethod, other.paymentMethod);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revenueDate, status, productId, paymentMethod);
+    }
+}
@@ -0,0 +1,105 @@
+package com.he180773.testreact.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Số lượng đã giữ cho một dòng đơn: HELD khi đặt hàng, COMMITTED khi admin duyệt, RELEASED khi hủy/hết hạn (trả lại kho)
+@Entity
+@Table(name = "[StockReservation]", indexes = {
+        @Index(name = "ix_stock_reservation_order", columnList = "order_id"),
+        @Index(name = "ix_stock_reservation_expiry", columnList = "status, expires_at")
+})
+public class StockReservation {
+
+    public static final String HELD = "HELD";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String RELEASED = "RELEASED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+    @SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservation_seq", allocationSize = 50)
+    @Column(name = "ID", nullable = false)
+    private Long id;
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    @Column(name = "product_variant_id", nullable = false)
+    private Long productVariantId;
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public StockReservation() {
+    }
+
+    public StockReservation(Long orderId, Long productVariantId, Integer quantity, LocalDateTime createdAt,
+                            LocalDateTime expiresAt) {
+        this.orderId = orderId;
+        this.productVariantId = productVariantId;
+        this.quantity = quantity;
+        this.status = HELD;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getProductVariantId() {
+        return productVariantId;
+    }
+
+    public void setProductVariantId(Long productVariantId) {
+        this.productVariantId = productVariantId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
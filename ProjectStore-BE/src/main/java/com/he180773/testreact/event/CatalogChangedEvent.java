@@ -0,0 +1,24 @@
+package com.he180773.testreact.event;
+
+// Phát ra khi catalog thay đổi; productId == null nghĩa là toàn bộ catalog vừa được dựng lại
+public class CatalogChangedEvent {
+    private final Long productId;
+    private final long catalogVersion;
+
+    public CatalogChangedEvent(Long productId, long catalogVersion) {
+        this.productId = productId;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    public boolean isFullRebuild() {
+        return productId == null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.he180773.testreact.event;
+
+import java.time.LocalDateTime;
+
+// Phát ra (trong transaction) mỗi khi một đơn được tạo hoặc đổi trạng thái; fromStatus == null nghĩa là đơn vừa được đặt
+public class OrderStatusChangedEvent {
+    private final Long orderId;
+    private final Long userId;
+    private final String fromStatus;
+    private final String toStatus;
+    private final Integer totalPrice;
+    private final String paymentMethod;
+    private final LocalDateTime orderDate;
+    private final long version;
+
+    public OrderStatusChangedEvent(Long orderId, Long userId, String fromStatus, String toStatus, Integer totalPrice,
+                                   String paymentMethod, LocalDateTime orderDate, long version) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.totalPrice = totalPrice;
+        this.paymentMethod = paymentMethod;
+        this.orderDate = orderDate;
+        this.version = version;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getFromStatus() {
+        return fromStatus;
+    }
+
+    public String getToStatus() {
+        return toStatus;
+    }
+
+    public Integer getTotalPrice() {
+        return totalPrice;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isPlacement() {
+        return fromStatus == null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.he180773.testreact.event;
+
+import java.util.List;
+
+// Phát ra một lần cho cả lô khi admin chuyển trạng thái nhiều đơn cùng lúc, để listener xử lý theo tập thay vì từng đơn
+public class OrdersTransitionedEvent {
+    private final List<OrderStatusChangedEvent> transitions;
+
+    public OrdersTransitionedEvent(List<OrderStatusChangedEvent> transitions) {
+        this.transitions = List.copyOf(transitions);
+    }
+
+    public List<OrderStatusChangedEvent> getTransitions() {
+        return transitions;
+    }
+}
@@ -0,0 +1,19 @@
+package com.he180773.testreact.exception;
+
+/**
+ * Exception thrown when the wallet balance cannot cover a wallet-paid order
+ * Results in 409 Conflict response
+ */
+public class InsufficientFundsException extends RuntimeException {
+
+    private final Long userId;
+
+    public InsufficientFundsException(Long userId) {
+        super("Số dư ví của người dùng " + userId + " không đủ để thanh toán");
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
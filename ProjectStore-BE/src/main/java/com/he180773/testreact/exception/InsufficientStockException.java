@@ -0,0 +1,19 @@
+package com.he180773.testreact.exception;
+
+/**
+ * Exception thrown when a variant does not have enough stock to reserve
+ * Results in 409 Conflict response
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productVariantId;
+
+    public InsufficientStockException(Long productVariantId) {
+        super("Sản phẩm (variant " + productVariantId + ") không đủ hàng");
+        this.productVariantId = productVariantId;
+    }
+
+    public Long getProductVariantId() {
+        return productVariantId;
+    }
+}
@@ -0,0 +1,76 @@
+package com.he180773.testreact.exception;
+
+import com.he180773.testreact.dto.ErrorResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class OrderExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExceptionHandler.class);
+
+    /**
+     * Handle InsufficientStockException - 409 Conflict
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ErrorResponse> handleInsufficientStock(
+        InsufficientStockException ex,
+        HttpServletRequest request
+    ) {
+        logger.warn("Insufficient stock: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+            "Insufficient stock",
+            ex.getMessage(),
+            request.getRequestURI(),
+            HttpStatus.CONFLICT.value()
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    /**
+     * Handle OrderTransitionException - 409 Conflict
+     */
+    @ExceptionHandler(OrderTransitionException.class)
+    public ResponseEntity<ErrorResponse> handleOrderTransition(
+        OrderTransitionException ex,
+        HttpServletRequest request
+    ) {
+        logger.warn("Order transition rejected: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+            "Order transition rejected",
+            ex.getMessage(),
+            request.getRequestURI(),
+            HttpStatus.CONFLICT.value()
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    /**
+     * Handle InsufficientFundsException - 409 Conflict
+     */
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<ErrorResponse> handleInsufficientFunds(
+        InsufficientFundsException ex,
+        HttpServletRequest request
+    ) {
+        logger.warn("Insufficient funds: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+            "Insufficient funds",
+            ex.getMessage(),
+            request.getRequestURI(),
+            HttpStatus.CONFLICT.value()
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+}
@@ -0,0 +1,13 @@
+package com.he180773.testreact.exception;
+
+/**
+ * Exception thrown when an order cannot move to the requested status
+ * (invalid transition or the order was changed concurrently)
+ * Results in 409 Conflict response
+ */
+public class OrderTransitionException extends RuntimeException {
+
+    public OrderTransitionException(String message) {
+        super(message);
+    }
+}
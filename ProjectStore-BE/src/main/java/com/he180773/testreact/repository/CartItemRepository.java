@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +27,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     void deleteByCartIdAndProductVariantId(Long cartId, Long productVariantId);
 
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.cartId = :cartId AND c.productVariantId IN :productVariantIds")
+    int deleteByCartIdAndProductVariantIdIn(@Param("cartId") Long cartId,
+                                            @Param("productVariantIds") Collection<Long> productVariantIds);
+
 }
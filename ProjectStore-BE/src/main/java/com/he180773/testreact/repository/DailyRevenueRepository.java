@@ -0,0 +1,38 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.DailyRevenue;
+import com.he180773.testreact.entity.DailyRevenueId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyRevenueRepository extends JpaRepository<DailyRevenue, DailyRevenueId> {
+
+    @Modifying
+    @Query("UPDATE DailyRevenue r SET r.orderCount = r.orderCount + :countDelta, r.revenue = r.revenue + :revenueDelta " +
+            "WHERE r.id.revenueDate = :revenueDate AND r.id.status = :status")
+    int addDelta(@Param("revenueDate") LocalDate revenueDate, @Param("status") String status,
+                 @Param("countDelta") long countDelta, @Param("revenueDelta") long revenueDelta);
+
+    // Khoảng ngày nửa mở [from, to)
+    @Query("SELECT r FROM DailyRevenue r WHERE r.id.status = :status " +
+            "AND r.id.revenueDate >= :from AND r.id.revenueDate < :to ORDER BY r.id.revenueDate")
+    List<DailyRevenue> findByStatusBetween(@Param("status") String status, @Param("from") LocalDate from,
+                                           @Param("to") LocalDate to);
+
+    @Query("SELECT r FROM DailyRevenue r WHERE r.id.status = :status ORDER BY r.id.revenueDate")
+    List<DailyRevenue> findByStatus(@Param("status") String status);
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyRevenue r WHERE r.id.status = :status")
+    long sumRevenueByStatus(@Param("status") String status);
+
+    @Modifying
+    @Query("DELETE FROM DailyRevenue r")
+    int deleteAllRows();
+}
@@ -3,11 +3,38 @@ package com.he180773.testreact.repository;
 
 import com.he180773.testreact.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByOrderId(Long orderId);
-}
\ No newline at end of file
+
+    List<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
+
+    // [productId, tổng số lượng] của một đơn
+    @Query("SELECT v.productId, SUM(i.quantity) FROM OrderItem i, ProductVariant v " +
+            "WHERE i.productVariantId = v.id AND i.orderId = :orderId " +
+            "GROUP BY v.productId")
+    List<Object[]> sumQuantityByProductForOrder(@Param("orderId") Long orderId);
+
+    // [productId, tổng số lượng] của mọi đơn ở một trạng thái, dùng để backfill
+    @Query("SELECT v.productId, SUM(i.quantity) FROM OrderItem i, ProductVariant v, Order o " +
+            "WHERE i.productVariantId = v.id AND i.orderId = o.id AND o.status = :status " +
+            "GROUP BY v.productId")
+    List<Object[]> sumQuantityByProductForStatus(@Param("status") String status);
+
+    // Dựng lại cube doanh thu: [ngày, trạng thái, productId, phương thức thanh toán, danh mục, bộ sưu tập, tên, số lượng, doanh thu]
+    // từ ảnh chụp trên dòng đơn của các đơn có id <= maxId; dòng cũ chưa có ảnh chụp (product_id NULL) bị bỏ qua
+    @Query("SELECT CAST(o.orderDate AS LocalDate), o.status, i.productId, COALESCE(o.paymentMethod, 'unknown'), " +
+            "MAX(i.category), MAX(i.collectionId), MAX(i.productName), " +
+            "SUM(i.quantity), SUM(i.quantity * COALESCE(i.price, i.unitPrice, 0)) " +
+            "FROM OrderItem i JOIN Order o ON o.id = i.orderId " +
+            "WHERE o.id <= :maxId AND i.productId IS NOT NULL AND o.orderDate IS NOT NULL AND o.status IS NOT NULL " +
+            "GROUP BY CAST(o.orderDate AS LocalDate), o.status, i.productId, COALESCE(o.paymentMethod, 'unknown')")
+    List<Object[]> sumRevenueCube(@Param("maxId") Long maxId);
+}
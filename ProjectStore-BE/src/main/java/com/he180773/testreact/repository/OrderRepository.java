@@ -1,10 +1,20 @@
 package com.he180773.testreact.repository;
 
 
+import com.he180773.testreact.dto.RevenueBucket;
 import com.he180773.testreact.entity.Order;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -13,4 +23,60 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByStatus(String status);
     List<Order> findAllByUserIdOrderByOrderDateDesc(Long userId);
     List<Order> findAllByUserIdAndStatusOrderByOrderDateDesc(Long id, String status);
+    Page<Order> findByUserId(Long userId, Pageable pageable);
+    Page<Order> findByUserIdAndStatus(Long userId, String status, Pageable pageable);
+
+    // [status, số đơn, tổng tiền] của một user
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalPrice), 0) FROM Order o " +
+            "WHERE o.userId = :userId GROUP BY o.status")
+    List<Object[]> sumByStatusForUser(@Param("userId") Long userId);
+
+    // Chuyển trạng thái bằng một câu UPDATE có điều kiện: chỉ thành công nếu đơn vẫn ở trạng thái/version đã đọc
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :toStatus, o.version = COALESCE(o.version, 0) + 1 " +
+            "WHERE o.id = :id AND o.status = :fromStatus AND COALESCE(o.version, 0) = :version")
+    int transition(@Param("id") Long id, @Param("fromStatus") String fromStatus, @Param("toStatus") String toStatus,
+                   @Param("version") long version);
+
+    // [ngày đặt, trạng thái, số đơn, tổng tiền] của các đơn có id <= maxId, dùng để dựng lại bảng DailyRevenue
+    @Query("SELECT CAST(o.orderDate AS LocalDate), o.status, COUNT(o), COALESCE(SUM(o.totalPrice), 0) FROM Order o " +
+            "WHERE o.id <= :maxId AND o.orderDate IS NOT NULL AND o.status IS NOT NULL " +
+            "GROUP BY CAST(o.orderDate AS LocalDate), o.status")
+    List<Object[]> sumByDayAndStatus(@Param("maxId") Long maxId);
+
+    // Doanh thu theo ngày / theo tháng của một trạng thái trong khoảng [from, to); điều kiện chỉ so sánh trực tiếp
+    // status và order_date nên dùng được index (status, order_date)
+    @Query("SELECT YEAR(o.orderDate) AS bucketYear, MONTH(o.orderDate) AS bucketMonth, DAY(o.orderDate) AS bucketDay, " +
+            "COUNT(o) AS orderCount, COALESCE(SUM(o.totalPrice), 0) AS revenue FROM Order o " +
+            "WHERE o.status = :status AND o.orderDate >= :from AND o.orderDate < :to " +
+            "GROUP BY YEAR(o.orderDate), MONTH(o.orderDate), DAY(o.orderDate)")
+    List<RevenueBucket> sumRevenueByDay(@Param("status") String status, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    @Query("SELECT YEAR(o.orderDate) AS bucketYear, MONTH(o.orderDate) AS bucketMonth, 1 AS bucketDay, " +
+            "COUNT(o) AS orderCount, COALESCE(SUM(o.totalPrice), 0) AS revenue FROM Order o " +
+            "WHERE o.status = :status AND o.orderDate >= :from AND o.orderDate < :to " +
+            "GROUP BY YEAR(o.orderDate), MONTH(o.orderDate)")
+    List<RevenueBucket> sumRevenueByMonth(@Param("status") String status, @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    // Id lớn nhất hiện có (null nếu bảng trống); mốc của các lần dựng lại từ bảng Order
+    @Query("SELECT MAX(o.id) FROM Order o")
+    Long findMaxId();
+
+    // [id, userId, totalPrice, orderDate] theo id tăng dần trong (afterId, maxId], để quét theo lô (keyset) khi dựng lại sketch
+    @Query("SELECT o.id, o.userId, o.totalPrice, o.orderDate FROM Order o WHERE o.id > :afterId AND o.id <= :maxId ORDER BY o.id")
+    List<Object[]> findSketchRows(@Param("afterId") Long afterId, @Param("maxId") Long maxId, Pageable pageable);
+
+    // Khóa theo thứ tự id để hai thao tác hàng loạt chồng nhau không deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<Order> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Dùng sau lockAllByIdIn: các đơn đã bị khóa nên số dòng cập nhật khớp đúng với các đơn đã kiểm tra
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :toStatus, o.version = COALESCE(o.version, 0) + 1 " +
+            "WHERE o.id IN :ids AND o.status = :fromStatus")
+    int transitionAll(@Param("ids") Collection<Long> ids, @Param("fromStatus") String fromStatus,
+                      @Param("toStatus") String toStatus);
 }
\ No newline at end of file
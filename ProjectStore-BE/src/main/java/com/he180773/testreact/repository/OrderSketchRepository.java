@@ -0,0 +1,31 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.OrderSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderSketchRepository extends JpaRepository<OrderSketch, LocalDate> {
+
+    // Khoảng ngày nửa mở [from, to)
+    @Query("SELECT s FROM OrderSketch s WHERE s.bucketDate >= :from AND s.bucketDate < :to ORDER BY s.bucketDate")
+    List<OrderSketch> findBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Khóa dòng trước khi gộp, để nhiều node cùng ghi một ngày không ghi đè lẫn nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OrderSketch s WHERE s.bucketDate = :day")
+    Optional<OrderSketch> lockByBucketDate(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query("DELETE FROM OrderSketch s")
+    int deleteAllRows();
+}
@@ -0,0 +1,39 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.ProductFacet;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductFacetRepository extends JpaRepository<ProductFacet, ProductFacet.Key> {
+
+    List<ProductFacet> findByProductId(Long productId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProductFacet f WHERE f.productId = :productId")
+    void deleteByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM ProductFacet f WHERE f.productId IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("INSERT INTO ProductFacet (productId, facetType, facetValue) " +
+            "SELECT DISTINCT v.productId, '" + ProductFacet.SIZE + "', v.size FROM ProductVariant v " +
+            "WHERE v.productId IN :productIds AND v.quantity > 0 AND v.size IS NOT NULL")
+    int insertSizeFacets(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("INSERT INTO ProductFacet (productId, facetType, facetValue) " +
+            "SELECT DISTINCT v.productId, '" + ProductFacet.COLOR + "', v.color FROM ProductVariant v " +
+            "WHERE v.productId IN :productIds AND v.quantity > 0 AND v.color IS NOT NULL")
+    int insertColorFacets(@Param("productIds") Collection<Long> productIds);
+}
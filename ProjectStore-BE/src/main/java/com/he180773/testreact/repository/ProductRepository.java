@@ -5,13 +5,17 @@ import jdk.jfr.Category;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -33,68 +37,31 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     List<Product> findAllByOrderByArrivedDateDesc();
 
-    @Query("SELECT DISTINCT p FROM Product p " +
-            "WHERE p.id IN (" +
-            "   SELECT v.productId FROM ProductVariant v " +
-            "   WHERE (:minPrice IS NULL OR v.price >= :minPrice) " +
-            "     AND (:maxPrice IS NULL OR v.price <= :maxPrice)" +
-            ") " +
-            "AND p.arrivedDate >= :startDate " +
-            "AND (:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')))")
-    Page<Product> findNewArrivalsSorted(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("name") String name,
-            @Param("minPrice") Integer minPrice,
-            @Param("maxPrice") Integer maxPrice,
-            Pageable pageable);
-
-
     @Query("SELECT p FROM Product p WHERE p.arrivedDate >= :startDate"+
             " AND p.totalQuantity > 0")
     List<Product> findNewArrivals(@Param("startDate") LocalDateTime startDate);
 
-    // Tìm theo tên chứa và lọc theo khoảng giá (min-max)
-    @Query("""
-SELECT  p FROM Product p
-WHERE EXISTS (
-   SELECT v.productId FROM ProductVariant v
-   WHERE (:minPrice IS NULL OR v.price >= :minPrice)
-     AND (:maxPrice IS NULL OR v.price <= :maxPrice)
-)
-AND (:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')))
-AND (:category IS NULL OR LOWER(p.category) LIKE LOWER(CONCAT('%', :category, '%')))
-ORDER BY
-  CASE
-    WHEN LOWER(p.category) LIKE '%buddhist%'  THEN 1
-    WHEN LOWER(p.category) LIKE '%robe%' THEN 2
-    WHEN LOWER(p.category) LIKE '%accessory%'  THEN 3
-    ELSE 4
-  END,
-  p.id DESC
-""")
-    Page<Product> findFilteredProducts(
-            @Param("category") String category,
-            @Param("name") String name,
-            @Param("minPrice") Integer minPrice,
-            @Param("maxPrice") Integer maxPrice,
-            Pageable pageable
-    );
-
-
-    @Query("SELECT DISTINCT p FROM Product p " +
-            "WHERE p.id IN (" +
-            "   SELECT v.productId FROM ProductVariant v " +
-            "   WHERE (:minPrice IS NULL OR v.price >= :minPrice) AND" +
-            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-            "(:maxPrice IS NULL OR v.price <= :maxPrice))")
-    Page<Product> findFilteredAllProducts(
-            @Param("name") String name,
-            @Param("minPrice") Integer minPrice,
-            @Param("maxPrice") Integer maxPrice,
-            Pageable pageable
-    );
-
     List<Product> findAllByNameContains(String name);
 
     List<Product> findAllByCollectionId(Long id);
+
+    // Khóa theo thứ tự id để các transaction cùng tính lại không deadlock lẫn nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // Duyệt id sản phẩm theo keyset, không nạp cả dòng
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Tính lại các cột tổng hợp từ ProductVariant ngay trong DB, một câu lệnh cho cả nhóm sản phẩm
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+            "p.totalQuantity = COALESCE((SELECT CAST(SUM(v.quantity) AS Integer) FROM ProductVariant v WHERE v.productId = p.id), 0), " +
+            "p.inStockVariantCount = (SELECT CAST(COUNT(v) AS Integer) FROM ProductVariant v WHERE v.productId = p.id AND v.quantity > 0), " +
+            "p.minPrice = (SELECT MIN(v.price) FROM ProductVariant v WHERE v.productId = p.id), " +
+            "p.maxPrice = (SELECT MAX(v.price) FROM ProductVariant v WHERE v.productId = p.id), " +
+            "p.price = COALESCE((SELECT MIN(v.price) FROM ProductVariant v WHERE v.productId = p.id), p.price) " +
+            "WHERE p.id IN :ids")
+    int recomputeAggregates(@Param("ids") Collection<Long> ids);
 }
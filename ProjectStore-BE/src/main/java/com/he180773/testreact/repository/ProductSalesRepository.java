@@ -0,0 +1,16 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.ProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+
+    @Modifying
+    @Query("UPDATE ProductSales s SET s.soldQuantity = s.soldQuantity + :delta WHERE s.productId = :productId")
+    int addSoldQuantity(@Param("productId") Long productId, @Param("delta") long delta);
+}
@@ -2,9 +2,15 @@ package com.he180773.testreact.repository;
 
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +22,26 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     List<ProductVariant> findAllById(Long id);
 
     Optional<ProductVariant> findById(long id);
+
+    // Variant cũ chưa có primary_image, duyệt theo keyset trên id (chỉ nạp các dòng cần sửa)
+    @Query("SELECT v FROM ProductVariant v WHERE v.id > :afterId AND v.primaryImage IS NULL AND v.image IS NOT NULL ORDER BY v.id")
+    List<ProductVariant> findMissingPrimaryImage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Trừ tồn kho có điều kiện ngay trong DB: trả về 0 nếu không đủ hàng, không bao giờ xuống âm
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.quantity = v.quantity - :quantity WHERE v.id = :id AND v.quantity >= :quantity")
+    int decrementIfAvailable(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.quantity = v.quantity + :quantity WHERE v.id = :id")
+    int incrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Trả về kho toàn bộ hàng đang giữ (chưa RELEASED) của các đơn, một câu lệnh cho mọi variant; gọi trước releaseAll
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.quantity = v.quantity + " +
+            "(SELECT SUM(r.quantity) FROM StockReservation r WHERE r.productVariantId = v.id " +
+            "AND r.orderId IN :orderIds AND r.status <> '" + StockReservation.RELEASED + "') " +
+            "WHERE v.id IN (SELECT r.productVariantId FROM StockReservation r " +
+            "WHERE r.orderId IN :orderIds AND r.status <> '" + StockReservation.RELEASED + "')")
+    int restockReservations(@Param("orderIds") Collection<Long> orderIds);
 }
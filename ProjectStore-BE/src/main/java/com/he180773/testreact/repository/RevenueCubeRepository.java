@@ -0,0 +1,27 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.RevenueCube;
+import com.he180773.testreact.entity.RevenueCubeId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface RevenueCubeRepository extends JpaRepository<RevenueCube, RevenueCubeId> {
+
+    @Modifying
+    @Query("UPDATE RevenueCube c SET c.quantity = c.quantity + :quantityDelta, c.revenue = c.revenue + :revenueDelta " +
+            "WHERE c.id.revenueDate = :revenueDate AND c.id.status = :status " +
+            "AND c.id.productId = :productId AND c.id.paymentMethod = :paymentMethod")
+    int addDelta(@Param("revenueDate") LocalDate revenueDate, @Param("status") String status,
+                 @Param("productId") Long productId, @Param("paymentMethod") String paymentMethod,
+                 @Param("quantityDelta") long quantityDelta, @Param("revenueDelta") long revenueDelta);
+
+    @Modifying
+    @Query("DELETE FROM RevenueCube c")
+    int deleteAllRows();
+}
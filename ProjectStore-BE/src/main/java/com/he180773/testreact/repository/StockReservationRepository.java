@@ -0,0 +1,46 @@
+package com.he180773.testreact.repository;
+
+import com.he180773.testreact.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderId(Long orderId);
+
+    boolean existsByOrderId(Long orderId);
+
+    List<StockReservation> findByOrderIdInAndStatusNot(Collection<Long> orderIds, String status);
+
+    // Chỉ tính reservation còn hiệu lực: đơn có hàng giữ đã hết hạn (RELEASED) phải giữ lại hàng khi duyệt
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r WHERE r.orderId IN :orderIds " +
+            "AND r.status <> '" + StockReservation.RELEASED + "'")
+    List<Long> findOrderIdsWithReservations(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r " +
+            "WHERE r.status = '" + StockReservation.HELD + "' AND r.expiresAt < :now")
+    List<Long> findOrderIdsWithExpiredHolds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Chuyển trạng thái có điều kiện: chỉ một transaction thắng nếu hai luồng cùng xử lý một reservation
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.orderId IN :orderIds AND r.status = :from")
+    int transitionAll(@Param("orderIds") Collection<Long> orderIds, @Param("from") String from, @Param("to") String to);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = '" + StockReservation.RELEASED + "' " +
+            "WHERE r.orderId IN :orderIds AND r.status <> '" + StockReservation.RELEASED + "'")
+    int releaseAll(@Param("orderIds") Collection<Long> orderIds);
+}
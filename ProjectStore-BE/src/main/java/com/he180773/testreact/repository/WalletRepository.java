@@ -2,12 +2,35 @@ package com.he180773.testreact.repository;
 
 import com.he180773.testreact.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByUserId(Long userId);
 
     Optional<Wallet> findById(Long walletId);
+
+    // Cộng tiền ngay trong DB, không đọc - sửa - ghi
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount WHERE w.userId = :userId")
+    int addBalance(@Param("userId") Long userId, @Param("amount") int amount);
+
+    // Trừ tiền có điều kiện trong một câu UPDATE; trả về 0 nếu ví không tồn tại hoặc không đủ số dư
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount WHERE w.userId = :userId AND w.balance >= :amount")
+    int debitIfSufficient(@Param("userId") Long userId, @Param("amount") int amount);
+
+    // Hoàn tiền cho mọi đơn thanh toán bằng ví trong danh sách, mỗi ví một lần cộng tổng
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + " +
+            "(SELECT SUM(o.totalPrice) FROM Order o WHERE o.userId = w.userId AND o.id IN :orderIds " +
+            "AND o.paymentMethod = 'wallet' AND o.totalPrice IS NOT NULL) " +
+            "WHERE w.userId IN (SELECT o.userId FROM Order o WHERE o.id IN :orderIds " +
+            "AND o.paymentMethod = 'wallet' AND o.totalPrice IS NOT NULL)")
+    int refundWalletOrders(@Param("orderIds") Collection<Long> orderIds);
 }
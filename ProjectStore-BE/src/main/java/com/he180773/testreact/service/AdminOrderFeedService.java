@@ -0,0 +1,141 @@
+package com.he180773.testreact.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.he180773.testreact.dto.AdminOrderResponseDTO;
+import com.he180773.testreact.dto.OrderFeedQuery;
+import com.he180773.testreact.dto.OrderSliceDTO;
+import com.he180773.testreact.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Feed đơn hàng cho admin, phân trang keyset theo id giảm dần (đơn mới nhất trước):
+ * trang sau chỉ lấy id nhỏ hơn id cuối của trang trước nên trang sâu tốn như trang đầu.
+ * export()/exportArray() dùng cùng bộ lọc, ghi NDJSON hoặc mảng JSON theo từng lô để không giữ cả bảng Order trong heap.
+ */
+@Service
+public class AdminOrderFeedService {
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final OrderAssembler orderAssembler;
+    // ObjectMapper của Spring để mỗi dòng NDJSON giống hệt JSON của /feed
+    private final ObjectMapper objectMapper;
+
+    public AdminOrderFeedService(EntityManager entityManager, OrderAssembler orderAssembler, ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.orderAssembler = orderAssembler;
+        this.objectMapper = objectMapper;
+    }
+
+    public OrderSliceDTO scroll(OrderFeedQuery query, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Long afterId = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+
+        List<Order> rows = fetch(query, afterId, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<Order> orders = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? encodeCursor(orders.get(orders.size() - 1).getId()) : null;
+        return new OrderSliceDTO(orderAssembler.assemble(orders, true), nextCursor, hasNext);
+    }
+
+    // Mỗi đơn một dòng JSON; flush sau mỗi lô để client nhận dần
+    public void export(OrderFeedQuery query, OutputStream out) throws IOException {
+        write(query, out, false);
+    }
+
+    // Toàn bộ đơn khớp bộ lọc trong một mảng JSON, ghi dần theo lô như export()
+    public void exportArray(OrderFeedQuery query, OutputStream out) throws IOException {
+        write(query, out, true);
+    }
+
+    private void write(OrderFeedQuery query, OutputStream out, boolean array) throws IOException {
+        if (array) {
+            out.write('[');
+        }
+        boolean first = true;
+        Long afterId = null;
+        while (true) {
+            List<Order> orders = fetch(query, afterId, EXPORT_CHUNK_SIZE);
+            if (orders.isEmpty()) {
+                break;
+            }
+            for (AdminOrderResponseDTO dto : orderAssembler.assemble(orders, true)) {
+                if (array && !first) {
+                    out.write(',');
+                }
+                out.write(objectMapper.writeValueAsBytes(dto));
+                if (!array) {
+                    out.write('\n');
+                }
+                first = false;
+            }
+            out.flush();
+            // Entity của lô trước không cần nữa, tránh persistence context phình theo số đơn
+            entityManager.clear();
+            if (orders.size() < EXPORT_CHUNK_SIZE) {
+                break;
+            }
+            afterId = orders.get(orders.size() - 1).getId();
+        }
+        if (array) {
+            out.write(']');
+            out.flush();
+        }
+    }
+
+    private List<Order> fetch(OrderFeedQuery query, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> o = cq.from(Order.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getStatus() != null) {
+            predicates.add(cb.equal(o.get("status"), query.getStatus()));
+        }
+        if (query.getUserId() != null) {
+            predicates.add(cb.equal(o.get("userId"), query.getUserId()));
+        }
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(o.get("orderDate"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThan(o.get("orderDate"), query.getTo()));
+        }
+        if (afterId != null) {
+            predicates.add(cb.lessThan(o.get("id"), afterId));
+        }
+        cq.select(o).where(predicates.toArray(new Predicate[0])).orderBy(cb.desc(o.get("id")));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("ORDER|" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("ORDER|")) {
+                throw new IllegalArgumentException("Cursor không phải của feed đơn hàng");
+            }
+            return Long.valueOf(raw.substring("ORDER|".length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+}
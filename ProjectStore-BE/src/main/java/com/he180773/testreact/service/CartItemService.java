@@ -57,11 +57,7 @@ public class CartItemService {
             String size = variant.getSize();
 
             // Lấy ảnh đầu tiên
-            String imageUrl = null;
-            List<String> images = JsonMapper.jsonToList(variant.getImage());
-            if (variant.getImage() != null && !variant.getImage().isEmpty()) {
-                imageUrl = images.get(0); // Giả sử ảnh đầu tiên là ảnh đại diện
-            }
+            String imageUrl = variant.resolvePrimaryImage();
             return new CartItemDTO(
                     item.getId(),
                     variant.getId(),
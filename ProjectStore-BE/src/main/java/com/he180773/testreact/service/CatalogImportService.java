@@ -0,0 +1,479 @@
+package com.he180773.testreact.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.he180773.testreact.dto.ImportJobDTO;
+import com.he180773.testreact.mapper.JsonMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Import catalog số lượng lớn từ file CSV hoặc JSONL.
+ * File được đọc từng dòng (không nạp cả file vào bộ nhớ). Mỗi lô sản phẩm tốn vài câu lệnh: một SELECT tìm
+ * sản phẩm đã có, một batch JDBC insert sản phẩm, một SELECT lấy id theo khóa tự nhiên và một batch insert variant.
+ * Các cột tổng hợp của sản phẩm chỉ được tính lại một lần ở cuối, kể cả khi import dừng giữa chừng.
+ * Sản phẩm và variant của nó được ghi trong cùng một transaction (theo lô), nên không có sản phẩm nào
+ * bị bỏ lại không có variant. Sản phẩm trùng (name, category, collection) với sản phẩm đã có bị bỏ qua,
+ * nên chạy lại một file đã import dở không nhân đôi catalog; unique index ux_product_natural_key chặn trùng
+ * ở tầng DB khi có ghi đồng thời.
+ *
+ * CSV: dòng tiêu đề bắt buộc, cột name,category,collectionId,thumbnailImage,color,size,price,quantity,images
+ * (images cách nhau bởi '|'); các dòng liên tiếp cùng name/category/collection/thumbnail thuộc cùng một sản phẩm.
+ * JSONL: mỗi dòng một sản phẩm {name, category, collectionId, thumbnailImage, variants: [{color, size, price, quantity, images}]}.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductAggregateService productAggregateService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ImportJobDTO> jobs = new ConcurrentHashMap<>();
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate, ProductAggregateService productAggregateService,
+                                TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productAggregateService = productAggregateService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public ImportJobDTO submit(MultipartFile file) throws IOException {
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload";
+        boolean jsonLines = fileName.toLowerCase().endsWith(".jsonl") || fileName.toLowerCase().endsWith(".ndjson");
+
+        // Request kết thúc trước khi import xong nên phải chép file ra đĩa trước
+        Path tempFile = Files.createTempFile("catalog-import-", jsonLines ? ".jsonl" : ".csv");
+        file.transferTo(tempFile);
+
+        ImportJobDTO job = new ImportJobDTO(UUID.randomUUID().toString(), fileName);
+        pruneFinishedJobs();
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job, tempFile, jsonLines));
+        return job;
+    }
+
+    public ImportJobDTO getJob(String id) {
+        return jobs.get(id);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJobDTO job, Path file, boolean jsonLines) {
+        job.setStatus("RUNNING");
+        job.setStartedAt(LocalDateTime.now());
+        ImportWriter writer = new ImportWriter(job);
+        boolean failed = false;
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                if (jsonLines) {
+                    readJsonLines(reader, job, writer);
+                } else {
+                    readCsv(reader, job, writer);
+                }
+                writer.flush();
+            } catch (Exception e) {
+                logger.error("Catalog import {} failed", job.getId(), e);
+                writer.flushQuietly();
+                job.reject(job.getLinesRead(), "Import dừng: " + e.getMessage());
+                failed = true;
+            }
+            // Các lô đã commit vẫn phải có cột tổng hợp, kể cả khi import dừng giữa chừng
+            job.setStatus("RECOMPUTING");
+            try {
+                productAggregateService.recompute(writer.productIds);
+            } catch (RuntimeException e) {
+                logger.error("Could not recompute aggregates for catalog import {}", job.getId(), e);
+                job.reject(job.getLinesRead(), "Không tính lại được tổng hợp sản phẩm: " + e.getMessage());
+                failed = true;
+            }
+            job.setStatus(failed ? "FAILED" : "DONE");
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportJobDTO job, ImportWriter writer) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = splitCsv(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        for (String required : List.of("name", "category", "color", "size", "price", "quantity")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Thiếu cột " + required);
+            }
+        }
+
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            job.incrementLinesRead();
+            if (line.isBlank()) continue;
+            try {
+                List<String> cells = splitCsv(line);
+                ProductRow product = new ProductRow(
+                        cell(cells, columns, "name"),
+                        cell(cells, columns, "category"),
+                        parseLong(cell(cells, columns, "collectionid")),
+                        cell(cells, columns, "thumbnailimage"));
+                String images = cell(cells, columns, "images");
+                VariantRow variant = new VariantRow(
+                        cell(cells, columns, "color"),
+                        cell(cells, columns, "size"),
+                        Integer.parseInt(cell(cells, columns, "price").trim()),
+                        Integer.parseInt(cell(cells, columns, "quantity").trim()),
+                        images == null || images.isBlank() ? List.of() : Arrays.asList(images.split("\\|")));
+                writer.add(lineNumber, product, variant);
+            } catch (RuntimeException e) {
+                job.reject(lineNumber, e.getMessage());
+            }
+        }
+    }
+
+    private void readJsonLines(BufferedReader reader, ImportJobDTO job, ImportWriter writer) throws IOException {
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            job.incrementLinesRead();
+            if (line.isBlank()) continue;
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                ProductRow product = new ProductRow(
+                        text(node, "name"),
+                        text(node, "category"),
+                        optionalLong(node, "collectionId"),
+                        text(node, "thumbnailImage"));
+                JsonNode variants = node.path("variants");
+                if (!variants.isArray() || variants.isEmpty()) {
+                    throw new IllegalArgumentException("Sản phẩm không có variant");
+                }
+                // Kiểm tra cả dòng trước khi ghi: một variant sai thì cả sản phẩm bị từ chối
+                List<VariantRow> rows = new ArrayList<>(variants.size());
+                for (JsonNode v : variants) {
+                    List<String> images = new ArrayList<>();
+                    v.path("images").forEach(image -> images.add(image.asText()));
+                    rows.add(new VariantRow(
+                            text(v, "color"),
+                            text(v, "size"),
+                            requiredInt(v, "price"),
+                            requiredInt(v, "quantity"),
+                            images));
+                }
+                writer.addProduct(lineNumber, product, rows);
+            } catch (IOException | RuntimeException e) {
+                job.reject(lineNumber, e.getMessage());
+            }
+        }
+    }
+
+    private record ProductRow(String name, String category, Long collectionId, String thumbnailImage) {
+        ProductRow {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Thiếu tên sản phẩm");
+            }
+            // So khớp với DB theo khóa tự nhiên; SQL Server bỏ qua khoảng trắng cuối khi so sánh chuỗi
+            name = name.strip();
+        }
+
+        ProductKey key() {
+            return new ProductKey(name, category, collectionId);
+        }
+    }
+
+    // Khóa tự nhiên của sản phẩm, trùng với unique index ux_product_natural_key
+    private record ProductKey(String name, String category, Long collectionId) { }
+
+    private record VariantRow(String color, String size, int price, int quantity, List<String> images) {
+        VariantRow {
+            if (price < 0 || quantity < 0) {
+                throw new IllegalArgumentException("Giá và số lượng không được âm");
+            }
+        }
+    }
+
+    // Một sản phẩm cùng các variant của nó; line là dòng đầu tiên của sản phẩm trong file
+    private record ProductBlock(long line, ProductRow product, List<VariantRow> variants) { }
+
+    // Gom các sản phẩm đã đọc xong và ghi theo lô, mỗi lô một transaction
+    private class ImportWriter {
+        private final ImportJobDTO job;
+        private final List<ProductBlock> pending = new ArrayList<>();
+        private final Set<Long> productIds = new LinkedHashSet<>();
+        private final String productTable;
+        private final String variantTable;
+        private ProductBlock current;
+        private int pendingVariants;
+
+        ImportWriter(ImportJobDTO job) {
+            this.job = job;
+            // Tên bảng được Hibernate quote ([Product]); lấy ký tự quote của DB để SQL chạy được trên cả SQL Server và Postgres
+            String quote = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getIdentifierQuoteString());
+            String q = quote == null || quote.isBlank() ? "" : quote;
+            this.productTable = q + "Product" + q;
+            this.variantTable = q + "Productvariant" + q;
+        }
+
+        // CSV: các dòng liên tiếp cùng sản phẩm được gom lại, sản phẩm kết thúc khi gặp sản phẩm khác
+        void add(long line, ProductRow product, VariantRow variant) {
+            if (current == null || !current.product().equals(product)) {
+                endProduct();
+                current = new ProductBlock(line, product, new ArrayList<>());
+            }
+            current.variants().add(variant);
+        }
+
+        // JSONL: mỗi dòng là một sản phẩm đầy đủ
+        void addProduct(long line, ProductRow product, List<VariantRow> variants) {
+            endProduct();
+            queue(new ProductBlock(line, product, variants));
+        }
+
+        private void endProduct() {
+            if (current != null) {
+                ProductBlock block = current;
+                current = null;
+                queue(block);
+            }
+        }
+
+        private void queue(ProductBlock block) {
+            pending.add(block);
+            pendingVariants += block.variants().size();
+            if (pendingVariants >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            endProduct();
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<ProductBlock> chunk = new ArrayList<>(pending);
+            pending.clear();
+            pendingVariants = 0;
+            try {
+                committed(chunk, transactionTemplate.execute(status -> write(chunk)));
+            } catch (RuntimeException e) {
+                // Một sản phẩm lỗi làm rollback cả lô: ghi lại từng sản phẩm để chỉ từ chối đúng dòng lỗi
+                for (ProductBlock block : chunk) {
+                    try {
+                        committed(List.of(block), transactionTemplate.execute(status -> write(List.of(block))));
+                    } catch (RuntimeException ex) {
+                        job.reject(block.line(), ex.getMessage());
+                    }
+                }
+            }
+        }
+
+        void flushQuietly() {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.warn("Could not flush pending products for import {}", job.getId(), e);
+            }
+        }
+
+        // Chỉ cập nhật tiến độ sau khi lô đã commit; id null là sản phẩm đã có sẵn
+        private void committed(List<ProductBlock> blocks, List<Long> ids) {
+            for (int i = 0; i < blocks.size(); i++) {
+                Long id = ids.get(i);
+                if (id == null) {
+                    job.incrementProductsSkipped();
+                    continue;
+                }
+                productIds.add(id);
+                job.incrementProductsCreated();
+                job.addVariantsCreated(blocks.get(i).variants().size());
+            }
+        }
+
+        private List<Long> write(List<ProductBlock> blocks) {
+            // Sản phẩm đã có trong DB hoặc xuất hiện trước đó trong cùng lô thì bỏ qua
+            Map<ProductKey, Long> existing = findIds(blocks);
+            Set<ProductKey> seen = new HashSet<>(existing.keySet());
+            List<ProductBlock> toInsert = new ArrayList<>(blocks.size());
+            boolean[] inserted = new boolean[blocks.size()];
+            for (int i = 0; i < blocks.size(); i++) {
+                if (seen.add(blocks.get(i).product().key())) {
+                    toInsert.add(blocks.get(i));
+                    inserted[i] = true;
+                }
+            }
+            if (toInsert.isEmpty()) {
+                return Arrays.asList(new Long[blocks.size()]);
+            }
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> products = new ArrayList<>(toInsert.size());
+            for (ProductBlock block : toInsert) {
+                ProductRow p = block.product();
+                products.add(new Object[]{p.name(), p.category(), now, p.thumbnailImage(), now, p.collectionId()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + productTable
+                    + " (name, category, arrived_date, thumbnail_image, total_quantity, created_at, created_by, collection_id)"
+                    + " VALUES (?, ?, ?, ?, 0, ?, 0, ?)", products);
+            // Khóa tự nhiên là duy nhất nên đọc lại id của cả lô bằng một câu SELECT thay vì lấy generated key từng dòng
+            Map<ProductKey, Long> created = findIds(toInsert);
+
+            List<Long> ids = new ArrayList<>(blocks.size());
+            List<Object[]> variants = new ArrayList<>();
+            for (int i = 0; i < blocks.size(); i++) {
+                if (!inserted[i]) {
+                    ids.add(null);
+                    continue;
+                }
+                ProductBlock block = blocks.get(i);
+                Long productId = Objects.requireNonNull(created.get(block.product().key()), "Không lấy được id sản phẩm");
+                ids.add(productId);
+                for (VariantRow v : block.variants()) {
+                    variants.add(new Object[]{
+                            v.color(), v.size(), v.price(), productId, v.quantity(),
+                            JsonMapper.listToJson(v.images()),
+                            v.images().isEmpty() ? null : v.images().get(0)
+                    });
+                }
+            }
+            if (!variants.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO " + variantTable
+                        + " (color, size, price, product_id, quantity, image, primary_image) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        variants);
+            }
+            return ids;
+        }
+
+        // Id của các sản phẩm trong DB trùng khóa tự nhiên với các sản phẩm của lô, một câu SELECT theo tên
+        private Map<ProductKey, Long> findIds(List<ProductBlock> blocks) {
+            Set<String> names = new LinkedHashSet<>();
+            blocks.forEach(block -> names.add(block.product().name()));
+            String placeholders = String.join(", ", Collections.nCopies(names.size(), "?"));
+            Map<ProductKey, Long> ids = new HashMap<>();
+            jdbcTemplate.query("SELECT id, name, category, collection_id FROM " + productTable
+                            + " WHERE name IN (" + placeholders + ")",
+                    (RowCallbackHandler) rs -> {
+                        long collectionId = rs.getLong("collection_id");
+                        Long collection = rs.wasNull() ? null : collectionId;
+                        ids.putIfAbsent(new ProductKey(rs.getString("name"), rs.getString("category"), collection),
+                                rs.getLong("id"));
+                    },
+                    names.toArray());
+            return ids;
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<ImportJobDTO> finished = jobs.values().stream()
+                .filter(j -> j.getFinishedAt() != null)
+                .sorted(Comparator.comparing(ImportJobDTO::getFinishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    private static String cell(List<String> cells, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+
+    private static int requiredInt(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isInt()) {
+            throw new IllegalArgumentException("Trường " + field + " thiếu hoặc không phải số nguyên");
+        }
+        return value.intValue();
+    }
+
+    private static Long optionalLong(JsonNode node, String field) {
+        if (!node.hasNonNull(field)) {
+            return null;
+        }
+        JsonNode value = node.get(field);
+        if (!value.isIntegralNumber() || !value.canConvertToLong()) {
+            throw new IllegalArgumentException("Trường " + field + " không phải số nguyên");
+        }
+        return value.longValue();
+    }
+
+    private static Long parseLong(String value) {
+        return value == null || value.isBlank() ? null : Long.valueOf(value.trim());
+    }
+
+    // Tách một dòng CSV, hỗ trợ ô trong dấu nháy kép và "" để escape
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        cells.add(current.toString());
+        return cells;
+    }
+}
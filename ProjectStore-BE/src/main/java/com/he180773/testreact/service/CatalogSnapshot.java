@@ -0,0 +1,131 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.Product;
+
+import java.util.*;
+
+/**
+ * Bản chụp bất biến của catalog, dùng để phục vụ các trang danh sách mà không cần query DB.
+ * Mỗi lần catalog thay đổi sẽ tạo một snapshot mới với version tăng dần (copy-on-write),
+ * nên người đọc luôn thấy một trạng thái nhất quán.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final long builtAt;
+    private final Map<Long, Product> byId;
+    private final List<Product> inStock;
+    private final Map<String, List<Product>> inStockByCategory;
+
+    private CatalogSnapshot(long version, Map<Long, Product> byId) {
+        this.version = version;
+        this.builtAt = System.currentTimeMillis();
+        this.byId = Collections.unmodifiableMap(byId);
+
+        List<Product> stock = new ArrayList<>();
+        Map<String, List<Product>> byCategory = new HashMap<>();
+        for (Product p : byId.values()) {
+            if (p.getTotalQuantity() == null || p.getTotalQuantity() <= 0) continue;
+            stock.add(p);
+            if (p.getCategory() != null) {
+                byCategory.computeIfAbsent(p.getCategory(), k -> new ArrayList<>()).add(p);
+            }
+        }
+        byCategory.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        this.inStock = Collections.unmodifiableList(stock);
+        this.inStockByCategory = Collections.unmodifiableMap(byCategory);
+    }
+
+    public static CatalogSnapshot build(long version, java.util.Collection<Product> products) {
+        Map<Long, Product> byId = new TreeMap<>();
+        for (Product p : products) {
+            byId.put(p.getId(), copyOf(p));
+        }
+        return new CatalogSnapshot(version, byId);
+    }
+
+    public CatalogSnapshot withProduct(long newVersion, Product product) {
+        Map<Long, Product> byId = new TreeMap<>(this.byId);
+        byId.put(product.getId(), copyOf(product));
+        return new CatalogSnapshot(newVersion, byId);
+    }
+
+    public CatalogSnapshot withoutProduct(long newVersion, Long productId) {
+        Map<Long, Product> byId = new TreeMap<>(this.byId);
+        byId.remove(productId);
+        return new CatalogSnapshot(newVersion, byId);
+    }
+
+    // So sánh từng sản phẩm theo các trường được chụp, bỏ qua version và thời điểm dựng
+    public boolean hasSameContent(CatalogSnapshot other) {
+        if (byId.size() != other.byId.size()) {
+            return false;
+        }
+        for (Map.Entry<Long, Product> entry : byId.entrySet()) {
+            Product mine = entry.getValue();
+            Product theirs = other.byId.get(entry.getKey());
+            if (theirs == null || !sameFields(mine, theirs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public Product getProduct(Long id) {
+        return byId.get(id);
+    }
+
+    public java.util.Collection<Product> getAllProducts() {
+        return byId.values();
+    }
+
+    public List<Product> getInStock() {
+        return inStock;
+    }
+
+    public List<Product> getInStockByCategory(String category) {
+        return inStockByCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    private static boolean sameFields(Product a, Product b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && Objects.equals(a.getArrivedDate(), b.getArrivedDate())
+                && Objects.equals(a.getThumbnailImage(), b.getThumbnailImage())
+                && Objects.equals(a.getTotalQuantity(), b.getTotalQuantity())
+                && Objects.equals(a.getPrice(), b.getPrice())
+                && Objects.equals(a.getCreatedAt(), b.getCreatedAt())
+                && a.getCreatedBy() == b.getCreatedBy()
+                && Objects.equals(a.getCollectionId(), b.getCollectionId())
+                && Objects.equals(a.getMinPrice(), b.getMinPrice())
+                && Objects.equals(a.getMaxPrice(), b.getMaxPrice())
+                && Objects.equals(a.getInStockVariantCount(), b.getInStockVariantCount());
+    }
+
+    // Product là entity mutable, snapshot giữ bản sao riêng để không bị sửa từ bên ngoài
+    private static Product copyOf(Product source) {
+        Product p = new Product();
+        p.setId(source.getId());
+        p.setName(source.getName());
+        p.setCategory(source.getCategory());
+        p.setArrivedDate(source.getArrivedDate());
+        p.setThumbnailImage(source.getThumbnailImage());
+        p.setTotalQuantity(source.getTotalQuantity());
+        p.setPrice(source.getPrice());
+        p.setCreatedAt(source.getCreatedAt());
+        p.setCreatedBy(source.getCreatedBy());
+        p.setCollectionId(source.getCollectionId());
+        p.setMinPrice(source.getMinPrice());
+        p.setMaxPrice(source.getMaxPrice());
+        p.setInStockVariantCount(source.getInStockVariantCount());
+        return p;
+    }
+}
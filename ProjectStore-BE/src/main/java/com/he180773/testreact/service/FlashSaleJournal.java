@@ -0,0 +1,148 @@
+package com.he180773.testreact.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Nhật ký append-only của flash sale, để khôi phục sau khi khởi động lại:
+ *   S id      bắt đầu flash sale cho variant
+ *   E id      kết thúc
+ *   C id n    n món thuộc đơn đã commit, chưa ghi xuống DB
+ *   F id n    đã ghi n món xuống DB
+ * Số món còn nợ DB của một variant = tổng C - tổng F. Món đang giữ trong transaction chưa commit
+ * không được ghi, nên khi sập giữa chừng chúng không bị tính là đã bán.
+ * Ghi theo kiểu group commit: mỗi luồng xếp dòng vào bộ đệm rồi chờ; một luồng ghi và flush cả lô
+ * cho mọi luồng đang chờ, nên N commit đồng thời chỉ tốn khoảng một lần flush.
+ */
+final class FlashSaleJournal {
+
+    record State(Set<Long> activeVariants, Map<Long, Integer> unsynced) { }
+
+    private record Entry(String type, Long variantId, int quantity) { }
+
+    private final Path path;
+    private final Map<Long, Integer> outstanding = new HashMap<>();
+    private BufferedWriter writer;
+    // Số thứ tự dòng đã ghi xuống file; chỉ đọc/ghi khi giữ khóa this
+    private long written;
+
+    private final Object bufferLock = new Object();
+    private List<Entry> buffer = new ArrayList<>();
+    private long enqueued;
+
+    FlashSaleJournal(Path path) {
+        this.path = path;
+    }
+
+    synchronized State read() throws IOException {
+        Set<Long> active = new LinkedHashSet<>();
+        Map<Long, Integer> unsynced = new HashMap<>();
+        if (!Files.exists(path)) {
+            return new State(active, unsynced);
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length < 2) continue; // dòng cuối có thể bị ghi dở khi tắt đột ngột
+            try {
+                Long variantId = Long.valueOf(parts[1]);
+                int quantity = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+                switch (parts[0]) {
+                    case "S" -> active.add(variantId);
+                    case "E" -> active.remove(variantId);
+                    // A/R: định dạng cũ (ghi lúc giữ hàng), chỉ còn gặp trong journal chưa kịp thu gọn
+                    case "C", "A" -> unsynced.merge(variantId, quantity, Integer::sum);
+                    case "R", "F" -> unsynced.merge(variantId, -quantity, Integer::sum);
+                    default -> { }
+                }
+            } catch (NumberFormatException ignored) {}
+        }
+        unsynced.values().removeIf(quantity -> quantity <= 0);
+        outstanding.clear();
+        outstanding.putAll(unsynced);
+        return new State(active, unsynced);
+    }
+
+    // Trả về khi dòng đã được flush xuống file (bởi chính luồng này hoặc luồng ghi cùng lô)
+    void append(String type, Long variantId, int quantity) {
+        long ticket;
+        synchronized (bufferLock) {
+            buffer.add(new Entry(type, variantId, quantity));
+            ticket = ++enqueued;
+        }
+        synchronized (this) {
+            if (written >= ticket) {
+                return;
+            }
+            List<Entry> batch;
+            long upTo;
+            synchronized (bufferLock) {
+                batch = buffer;
+                buffer = new ArrayList<>();
+                upTo = enqueued;
+            }
+            try {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                for (Entry entry : batch) {
+                    writer.write(entry.type() + " " + entry.variantId()
+                            + (entry.quantity() != 0 ? " " + entry.quantity() : ""));
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                // Trả lô về đầu bộ đệm để lần ghi sau thử lại
+                synchronized (bufferLock) {
+                    batch.addAll(buffer);
+                    buffer = batch;
+                }
+                throw new UncheckedIOException(e);
+            }
+            for (Entry entry : batch) {
+                switch (entry.type()) {
+                    case "C" -> outstanding.merge(entry.variantId(), entry.quantity(), Integer::sum);
+                    case "F" -> outstanding.merge(entry.variantId(), -entry.quantity(), Integer::sum);
+                    default -> { }
+                }
+            }
+            written = upTo;
+        }
+    }
+
+    // Ghi lại journal chỉ còn các variant đang mở bán; chỉ làm khi không còn món nào chưa ghi xuống DB
+    synchronized boolean compactIfSynced(Collection<Long> activeVariants) throws IOException {
+        if (outstanding.values().stream().anyMatch(quantity -> quantity != 0)) {
+            return false;
+        }
+        synchronized (bufferLock) {
+            if (!buffer.isEmpty()) {
+                return false;
+            }
+        }
+        outstanding.clear();
+        close();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        List<String> lines = new ArrayList<>();
+        for (Long variantId : activeVariants) {
+            lines.add("S " + variantId);
+        }
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chế độ flash sale cho một số variant được chỉ định: tồn kho nằm trong bộ đếm AtomicInteger,
+ * việc nhận/từ chối đơn là một vòng CAS trong bộ nhớ (hết hàng thì từ chối ngay, không chạm DB).
+ * Số món đã bán được gom lại và ghi xuống DB theo lô mỗi giây; journal trên đĩa giữ các món đã commit
+ * nhưng chưa ghi để khôi phục khi khởi động lại. Giữ hàng không chạm journal, chỉ lúc commit mới ghi. Journal là file cục bộ, nên chế độ này giả định chỉ chạy một instance.
+ * Khi ngừng, variant từ chối đơn mới, chờ các transaction đang giữ hàng kết thúc và phần đã bán được ghi hết
+ * xuống DB rồi mới bỏ bộ đếm, để luồng giữ hàng bình thường không đọc tồn kho DB còn thiếu phần đã bán.
+ */
+@Service
+public class FlashSaleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleService.class);
+
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductAggregateService productAggregateService;
+    private final TransactionTemplate transactionTemplate;
+    private final FlashSaleJournal journal;
+
+    // variantId -> số món còn có thể bán
+    private final Map<Long, AtomicInteger> remaining = new ConcurrentHashMap<>();
+    // variantId -> số món đã bán (đã commit) nhưng chưa ghi xuống DB
+    private final Map<Long, AtomicInteger> unsynced = new ConcurrentHashMap<>();
+    // variantId -> số lần giữ hàng có transaction chưa kết thúc
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    // Variant đang ngừng flash sale: không nhận giữ hàng mới
+    private final Set<Long> stopping = ConcurrentHashMap.newKeySet();
+    private final long stopTimeoutMillis;
+
+    public FlashSaleService(ProductVariantRepository productVariantRepository,
+                            ProductAggregateService productAggregateService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${flash-sale.journal-path:flash-sale.journal}") String journalPath,
+                            @Value("${flash-sale.stop-timeout-ms:30000}") long stopTimeoutMillis) {
+        this.productVariantRepository = productVariantRepository;
+        this.productAggregateService = productAggregateService;
+        this.transactionTemplate = transactionTemplate;
+        this.journal = new FlashSaleJournal(Path.of(journalPath));
+        this.stopTimeoutMillis = stopTimeoutMillis;
+    }
+
+    // Ghi nốt các món còn nợ DB từ lần chạy trước, rồi mở lại bộ đếm cho các variant đang flash sale
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() throws IOException {
+        FlashSaleJournal.State state = journal.read();
+        if (!state.unsynced().isEmpty()) {
+            logger.info("Recovering {} unsynced flash-sale variants from journal", state.unsynced().size());
+            state.unsynced().forEach((variantId, quantity) -> unsynced.put(variantId, new AtomicInteger(quantity)));
+            // Các món này đã có dòng C trong journal, F sẽ được ghi khi sync xong
+        }
+        for (Long variantId : state.activeVariants()) {
+            productVariantRepository.findById(variantId).ifPresent(variant -> {
+                int pending = unsynced.containsKey(variantId) ? unsynced.get(variantId).get() : 0;
+                int quantity = variant.getQuantity() != null ? variant.getQuantity() : 0;
+                remaining.put(variantId, new AtomicInteger(Math.max(quantity - pending, 0)));
+            });
+        }
+        sync();
+    }
+
+    public boolean isActive(Long variantId) {
+        return remaining.containsKey(variantId);
+    }
+
+    public Map<Long, Integer> getRemaining() {
+        Map<Long, Integer> snapshot = new TreeMap<>();
+        remaining.forEach((variantId, counter) -> snapshot.put(variantId, counter.get()));
+        return snapshot;
+    }
+
+    public synchronized void start(Long variantId) {
+        if (remaining.containsKey(variantId)) {
+            return;
+        }
+        ProductVariant variant = productVariantRepository.findById(variantId)
+                .orElseThrow(() -> new IllegalArgumentException("Variant không tồn tại"));
+        journal.append("S", variantId, 0);
+        remaining.put(variantId, new AtomicInteger(variant.getQuantity() != null ? variant.getQuantity() : 0));
+    }
+
+    /**
+     * Ngừng flash sale: từ chối giữ hàng mới, chờ các lần giữ hàng đang mở commit/rollback, ghi hết phần đã bán
+     * xuống DB, rồi mới bỏ bộ đếm để variant quay về luồng giữ hàng bình thường.
+     * Quá stopTimeoutMillis mà chưa xong thì ném IllegalStateException; variant vẫn ở trạng thái đang ngừng
+     * (từ chối đơn) và có thể gọi stop lại.
+     */
+    public synchronized void stop(Long variantId) {
+        if (!remaining.containsKey(variantId)) {
+            return;
+        }
+        stopping.add(variantId);
+        long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        while (count(inFlight, variantId) > 0 || count(unsynced, variantId) > 0) {
+            if (count(inFlight, variantId) == 0) {
+                sync();
+                if (count(unsynced, variantId) == 0) {
+                    continue;
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("Variant " + variantId + " vẫn còn đơn đang giữ hàng hoặc chưa ghi xuống DB, hãy thử lại sau");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Bị ngắt khi đang ngừng flash sale cho variant " + variantId, e);
+            }
+        }
+        remaining.remove(variantId);
+        inFlight.remove(variantId);
+        stopping.remove(variantId);
+        journal.append("E", variantId, 0);
+    }
+
+    private static int count(Map<Long, AtomicInteger> counters, Long variantId) {
+        AtomicInteger counter = counters.get(variantId);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Giữ quantity món trong bộ đếm (lock-free). Trả về false nếu không đủ hàng hoặc variant đang ngừng flash sale.
+     * Khi được gọi trong transaction, món đã giữ được trả lại bộ đếm nếu transaction rollback
+     * và chỉ được tính là đã bán (chờ ghi DB) sau khi commit.
+     */
+    public boolean tryAcquire(Long variantId, int quantity) {
+        AtomicInteger counter = remaining.get(variantId);
+        if (counter == null) {
+            throw new IllegalStateException("Variant " + variantId + " không ở chế độ flash sale");
+        }
+        // Tăng trước rồi mới kiểm tra stopping: stop() đặt stopping rồi mới đọc inFlight, nên không bỏ sót lần giữ nào.
+        // Bộ đếm đã bị bỏ (stop vừa xong) cũng bị từ chối, không bán tiếp trên bộ đếm cũ
+        AtomicInteger holds = inFlight.computeIfAbsent(variantId, id -> new AtomicInteger());
+        holds.incrementAndGet();
+        if (stopping.contains(variantId) || remaining.get(variantId) != counter) {
+            holds.decrementAndGet();
+            return false;
+        }
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                holds.decrementAndGet();
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                break;
+            }
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitSale(variantId, quantity);
+            holds.decrementAndGet();
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        commitSale(variantId, quantity);
+                    } else {
+                        counter.addAndGet(quantity);
+                    }
+                } finally {
+                    holds.decrementAndGet();
+                }
+            }
+        });
+        return true;
+    }
+
+    // Hàng được trả lại (đơn hủy): DB đã được cộng bởi InventoryService, chỉ mở lại trong bộ đếm sau khi commit
+    public void restock(Long variantId, int quantity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addBack(variantId, quantity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addBack(variantId, quantity);
+            }
+        });
+    }
+
+    private void addBack(Long variantId, int quantity) {
+        AtomicInteger counter = remaining.get(variantId);
+        if (counter != null) {
+            counter.addAndGet(quantity);
+        }
+    }
+
+    // Dòng C phải xuống đĩa trước khi sync có thể lấy số món này và ghi F
+    private void commitSale(Long variantId, int quantity) {
+        journal.append("C", variantId, quantity);
+        markSold(variantId, quantity);
+    }
+
+    private void markSold(Long variantId, int quantity) {
+        unsynced.computeIfAbsent(variantId, id -> new AtomicInteger()).addAndGet(quantity);
+    }
+
+    // Ghi các món đã bán xuống DB theo lô, một transaction cho cả lô
+    @Scheduled(fixedDelay = 1000, initialDelay = 1000)
+    public synchronized void sync() {
+        Map<Long, Integer> batch = new TreeMap<>();
+        for (Map.Entry<Long, AtomicInteger> entry : unsynced.entrySet()) {
+            int quantity = entry.getValue().getAndSet(0);
+            if (quantity > 0) {
+                batch.put(entry.getKey(), quantity);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> productIds = new TreeSet<>();
+                for (Map.Entry<Long, Integer> entry : batch.entrySet()) {
+                    // Bộ đếm đã bảo đảm đủ hàng, ở đây trừ thẳng không cần điều kiện
+                    productVariantRepository.incrementQuantity(entry.getKey(), -entry.getValue());
+                }
+                for (ProductVariant variant : productVariantRepository.findAllById(batch.keySet())) {
+                    productIds.add(variant.getProductId());
+                }
+                productIds.forEach(productAggregateService::recompute);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Flash-sale sync failed, will retry", e);
+            batch.forEach(this::markSold);
+            return;
+        }
+        batch.forEach((variantId, quantity) -> journal.append("F", variantId, quantity));
+        compactJournal();
+    }
+
+    private void compactJournal() {
+        try {
+            journal.compactIfSynced(remaining.keySet());
+        } catch (IOException e) {
+            logger.warn("Could not compact flash-sale journal", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        sync();
+        journal.close();
+    }
+}
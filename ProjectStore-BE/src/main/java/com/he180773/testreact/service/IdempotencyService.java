@@ -0,0 +1,143 @@
+package com.he180773.testreact.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Chống xử lý trùng khi client gửi lại request kèm header Idempotency-Key (ví dụ retry do timeout).
+ * Request đầu tiên với một key chạy action và lưu response; các request trùng key nhận lại đúng response đó,
+ * kể cả khi chúng đến lúc request đầu còn đang chạy (chờ chung một CompletableFuture).
+ * Store giới hạn số phần tử và tự hết hạn sau TTL. Không có key thì chỉ tốn một phép kiểm tra null.
+ * Mỗi key nhớ dấu vân tay (SHA-256) của body; dùng lại key với body khác bị từ chối 422 thay vì trả nhầm response cũ.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private record Entry(CompletableFuture<ResponseEntity<?>> response, byte[] fingerprint, long createdAt) {
+        boolean isExpired(long now) {
+            return now - createdAt > TTL_MILLIS;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ResponseEntity<?> execute(String scope, String key, Object requestBody, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " quá dài");
+        }
+        String storeKey = scope + ":" + key;
+        long now = System.currentTimeMillis();
+        Entry mine = new Entry(new CompletableFuture<>(), fingerprint(requestBody), now);
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(storeKey, mine);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now)) {
+                if (!Arrays.equals(existing.fingerprint(), mine.fingerprint())) {
+                    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                            .body(HEADER + " đã được dùng cho một request khác");
+                }
+                return replay(existing);
+            }
+            if (entries.replace(storeKey, existing, mine)) {
+                break;
+            }
+        }
+        insertionOrder.add(storeKey);
+        evictOverflow();
+
+        try {
+            ResponseEntity<?> response = action.get();
+            mine.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // Lỗi không được lưu lại: request đang chờ nhận cùng lỗi, lần retry sau sẽ chạy lại
+            entries.remove(storeKey, mine);
+            mine.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> replay(Entry entry) {
+        ResponseEntity<?> original;
+        try {
+            original = entry.response().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(original.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(original.getBody(), headers, original.getStatusCode());
+    }
+
+    private byte[] fingerprint(Object requestBody) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(requestBody));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không tính được fingerprint của request", e);
+        }
+    }
+
+    // Giữ store trong giới hạn: bỏ các key cũ nhất trước. Key đang xử lý thì không bỏ (request trùng đến sau
+    // sẽ chạy lại action) mà đưa về cuối hàng; mỗi lần chỉ duyệt tối đa một vòng để không quay mãi khi mọi key đều đang chạy
+    private void evictOverflow() {
+        int budget = insertionOrder.size();
+        while (entries.size() > MAX_ENTRIES && budget-- > 0) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            Entry entry = entries.get(oldest);
+            if (entry != null && !entry.response().isDone()) {
+                insertionOrder.add(oldest);
+                continue;
+            }
+            entries.remove(oldest);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now) && entry.response().isDone());
+        insertionOrder.removeIf(key -> !entries.containsKey(key));
+    }
+}
@@ -0,0 +1,212 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.OrderItem;
+import com.he180773.testreact.entity.OrderStatus;
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.entity.StockReservation;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.exception.InsufficientStockException;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import com.he180773.testreact.repository.StockReservationRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Giữ hàng cho đơn: tồn kho bị trừ ngay lúc đặt bằng UPDATE có điều kiện (quantity >= n),
+ * nên hai đơn tranh cùng một SKU không thể cùng lấy món cuối và tồn kho không bao giờ âm.
+ * Mỗi câu lệnh chỉ khóa dòng variant của nó, các variant khác không phải chờ nhau.
+ * Hàng được trả lại khi đơn bị hủy hoặc khi giữ quá hạn mà đơn vẫn chưa được duyệt; trường hợp sau đơn vẫn
+ * PENDING và được giữ hàng lại lúc duyệt (thiếu hàng thì duyệt bị từ chối 409).
+ */
+@Service
+public class InventoryService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductAggregateService productAggregateService;
+    private final FlashSaleService flashSaleService;
+    private final long holdHours;
+
+    public InventoryService(StockReservationRepository stockReservationRepository,
+                            ProductVariantRepository productVariantRepository,
+                            OrderItemRepository orderItemRepository,
+                            ProductAggregateService productAggregateService,
+                            FlashSaleService flashSaleService,
+                            @Value("${inventory.reservation.hold-hours:48}") long holdHours) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productAggregateService = productAggregateService;
+        this.flashSaleService = flashSaleService;
+        this.holdHours = holdHours;
+    }
+
+    // Giữ hàng cho cả đơn; thiếu một variant thì ném InsufficientStockException và transaction rollback toàn bộ
+    @Transactional
+    public void reserve(Long orderId, List<OrderItem> items) {
+        // Gộp theo variant và trừ theo thứ tự id để hai đơn cùng chứa nhiều SKU không deadlock
+        Map<Long, Integer> quantityByVariant = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                continue;
+            }
+            quantityByVariant.merge(item.getProductVariantId(), item.getQuantity(), Integer::sum);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockReservation> reservations = new ArrayList<>(quantityByVariant.size());
+        Set<Long> decrementedInDb = new TreeSet<>();
+        for (Map.Entry<Long, Integer> entry : quantityByVariant.entrySet()) {
+            // Variant đang flash sale: nhận/từ chối bằng bộ đếm trong bộ nhớ, DB được trừ sau theo lô
+            boolean flashSale = flashSaleService.isActive(entry.getKey());
+            boolean reserved = flashSale
+                    ? flashSaleService.tryAcquire(entry.getKey(), entry.getValue())
+                    : productVariantRepository.decrementIfAvailable(entry.getKey(), entry.getValue()) == 1;
+            if (!reserved) {
+                throw new InsufficientStockException(entry.getKey());
+            }
+            if (!flashSale) {
+                decrementedInDb.add(entry.getKey());
+            }
+            reservations.add(new StockReservation(orderId, entry.getKey(), entry.getValue(), now, now.plusHours(holdHours)));
+        }
+        stockReservationRepository.saveAll(reservations);
+        recomputeProducts(decrementedInDb);
+    }
+
+    // Admin duyệt đơn: hàng đã trừ lúc đặt, chỉ chuyển HELD -> COMMITTED; dòng đã bị trả về kho thì trừ kho lại
+    @Transactional
+    public void commit(Long orderId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderId(orderId);
+        if (reservations.isEmpty()) {
+            // Đơn đặt trước khi có cơ chế giữ hàng: giữ hàng lúc duyệt, có điều kiện như khi đặt
+            reserve(orderId, orderItemRepository.findByOrderId(orderId));
+            reservations = stockReservationRepository.findByOrderId(orderId);
+        }
+        Set<Long> decrementedInDb = new TreeSet<>();
+        // Theo thứ tự variant như reserve() để hai lần duyệt đồng thời không deadlock
+        reservations = new ArrayList<>(reservations);
+        reservations.sort(Comparator.comparing(StockReservation::getProductVariantId));
+        for (StockReservation reservation : reservations) {
+            if (stockReservationRepository.transition(reservation.getId(), StockReservation.HELD, StockReservation.COMMITTED) == 1
+                    || StockReservation.COMMITTED.equals(reservation.getStatus())) {
+                continue;
+            }
+            // Hàng giữ đã hết hạn và được trả về kho (kể cả khi job hết hạn chạy đồng thời với lúc duyệt):
+            // giữ lại dòng đó, thiếu hàng thì ném InsufficientStockException để việc duyệt rollback.
+            // Điều kiện RELEASED đảm bảo chỉ một luồng trừ kho lại cho mỗi dòng
+            if (stockReservationRepository.transition(reservation.getId(), StockReservation.RELEASED, StockReservation.COMMITTED) == 0) {
+                continue;
+            }
+            Long variantId = reservation.getProductVariantId();
+            if (flashSaleService.isActive(variantId)) {
+                if (!flashSaleService.tryAcquire(variantId, reservation.getQuantity())) {
+                    throw new InsufficientStockException(variantId);
+                }
+            } else if (productVariantRepository.decrementIfAvailable(variantId, reservation.getQuantity()) == 1) {
+                decrementedInDb.add(variantId);
+            } else {
+                throw new InsufficientStockException(variantId);
+            }
+        }
+        recomputeProducts(decrementedInDb);
+    }
+
+    // Trả hàng về kho cho mọi reservation chưa RELEASED của đơn; an toàn khi gọi lặp lại hoặc đồng thời
+    @Transactional
+    public void release(Long orderId) {
+        Set<Long> variantIds = new TreeSet<>();
+        for (StockReservation reservation : stockReservationRepository.findByOrderId(orderId)) {
+            if (StockReservation.RELEASED.equals(reservation.getStatus())) {
+                continue;
+            }
+            if (stockReservationRepository.transition(reservation.getId(), reservation.getStatus(), StockReservation.RELEASED) == 1) {
+                productVariantRepository.incrementQuantity(reservation.getProductVariantId(), reservation.getQuantity());
+                flashSaleService.restock(reservation.getProductVariantId(), reservation.getQuantity());
+                variantIds.add(reservation.getProductVariantId());
+            }
+        }
+        recomputeProducts(variantIds);
+    }
+
+    // Các đơn trong danh sách chưa có reservation (đặt trước khi có cơ chế giữ hàng)
+    public Set<Long> findOrdersWithoutReservations(Collection<Long> orderIds) {
+        Set<Long> missing = new TreeSet<>(orderIds);
+        stockReservationRepository.findOrderIdsWithReservations(orderIds).forEach(missing::remove);
+        return missing;
+    }
+
+    // Bản hàng loạt của commit: một câu UPDATE cho mọi reservation đang giữ của các đơn
+    @Transactional
+    public void commitAll(Collection<Long> orderIds) {
+        if (!orderIds.isEmpty()) {
+            stockReservationRepository.transitionAll(orderIds, StockReservation.HELD, StockReservation.COMMITTED);
+        }
+    }
+
+    /**
+     * Bản hàng loạt của release: cộng lại kho cho mọi variant bằng một câu UPDATE rồi đánh dấu RELEASED bằng một câu nữa.
+     * Chỉ an toàn khi các đơn đã bị khóa (OrderRepository.lockAllByIdIn), vì hai câu lệnh không có điều kiện theo từng dòng.
+     */
+    @Transactional
+    public void releaseAll(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> quantityByVariant = new TreeMap<>();
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdInAndStatusNot(orderIds, StockReservation.RELEASED)) {
+            quantityByVariant.merge(reservation.getProductVariantId(), reservation.getQuantity(), Integer::sum);
+        }
+        if (quantityByVariant.isEmpty()) {
+            return;
+        }
+        productVariantRepository.restockReservations(orderIds);
+        stockReservationRepository.releaseAll(orderIds);
+        quantityByVariant.forEach(flashSaleService::restock);
+        recomputeProducts(quantityByVariant.keySet());
+    }
+
+    // Duyệt đơn thì chốt hàng đã giữ, hủy đơn thì trả hàng về kho
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (OrderStatus.CONFIRMED.equals(event.getToStatus())) {
+            commit(event.getOrderId());
+        } else if (OrderStatus.CANCELLED.equals(event.getToStatus())) {
+            release(event.getOrderId());
+        }
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        List<Long> confirmed = new ArrayList<>();
+        List<Long> cancelled = new ArrayList<>();
+        for (OrderStatusChangedEvent transition : event.getTransitions()) {
+            if (OrderStatus.CONFIRMED.equals(transition.getToStatus())) {
+                confirmed.add(transition.getOrderId());
+            } else if (OrderStatus.CANCELLED.equals(transition.getToStatus())) {
+                cancelled.add(transition.getOrderId());
+            }
+        }
+        commitAll(confirmed);
+        releaseAll(cancelled);
+    }
+
+    private void recomputeProducts(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        Set<Long> productIds = new TreeSet<>();
+        for (ProductVariant variant : productVariantRepository.findAllById(variantIds)) {
+            productIds.add(variant.getProductId());
+        }
+        productIds.forEach(productAggregateService::recompute);
+    }
+}
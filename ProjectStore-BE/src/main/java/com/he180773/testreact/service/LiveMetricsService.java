@@ -0,0 +1,145 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.MetricsPointDTO;
+import com.he180773.testreact.entity.OrderStatus;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Số liệu trực tiếp cho dashboard admin: số đơn, doanh thu và số đơn hủy theo từng phút trong 24 giờ gần nhất.
+ * Dữ liệu nằm trong ring buffer không khóa (mỗi ô là một phút, ghi bằng CAS/AtomicLong), được cộng khi
+ * transaction của đơn commit. Thay đổi được gom lại và đẩy tối đa mỗi giây một lần lên /topic/admin-metrics,
+ * nên chi phí không phụ thuộc số admin đang xem hay số đơn mỗi giây.
+ */
+@Service
+public class LiveMetricsService {
+
+    public static final String TOPIC = "/topic/admin-metrics";
+
+    private static final int MINUTES = 24 * 60;
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    // Một phút của ring buffer; ô bị thay bằng Bucket mới khi vòng lại sau 24 giờ
+    private static final class Bucket {
+        private final long minute;
+        private final AtomicLong orders = new AtomicLong();
+        private final AtomicLong revenue = new AtomicLong();
+        private final AtomicLong cancellations = new AtomicLong();
+
+        private Bucket(long minute) {
+            this.minute = minute;
+        }
+
+        private MetricsPointDTO toDTO() {
+            return new MetricsPointDTO(minute * MINUTE_MILLIS, orders.get(), revenue.get(), cancellations.get());
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(MINUTES);
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Phút cũ nhất đã đổi kể từ lần đẩy trước
+    private final AtomicLong oldestDirtyMinute = new AtomicLong(Long.MAX_VALUE);
+
+    public LiveMetricsService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        afterCommit(() -> record(event));
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        afterCommit(() -> event.getTransitions().forEach(this::record));
+    }
+
+    private void record(OrderStatusChangedEvent event) {
+        boolean placed = event.isPlacement();
+        boolean cancelled = OrderStatus.CANCELLED.equals(event.getToStatus());
+        if (!placed && !cancelled) {
+            return;
+        }
+        long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        Bucket bucket = bucket(minute);
+        if (placed) {
+            bucket.orders.incrementAndGet();
+            bucket.revenue.addAndGet(event.getTotalPrice() != null ? event.getTotalPrice() : 0);
+        } else {
+            bucket.cancellations.incrementAndGet();
+        }
+        oldestDirtyMinute.accumulateAndGet(minute, Math::min);
+        dirty.set(true);
+    }
+
+    // Lấy ô của phút, thay ô cũ (của 24 giờ trước) bằng CAS nếu cần
+    private Bucket bucket(long minute) {
+        int index = (int) (minute % MINUTES);
+        while (true) {
+            Bucket current = ring.get(index);
+            if (current != null && current.minute >= minute) {
+                // current.minute > minute chỉ xảy ra khi luồng này bị treo hơn 24 giờ: ghi vào ô mới, không đáng kể
+                return current;
+            }
+            Bucket fresh = new Bucket(minute);
+            if (ring.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    // minutes phút gần nhất (kể cả phút hiện tại), phút không có đơn trả về 0
+    public List<MetricsPointDTO> getSeries(int minutes) {
+        int count = Math.max(1, Math.min(minutes, MINUTES));
+        long now = System.currentTimeMillis() / MINUTE_MILLIS;
+        return range(now - count + 1, now);
+    }
+
+    private List<MetricsPointDTO> range(long fromMinute, long toMinute) {
+        List<MetricsPointDTO> points = new ArrayList<>((int) (toMinute - fromMinute + 1));
+        for (long minute = fromMinute; minute <= toMinute; minute++) {
+            Bucket bucket = ring.get((int) (minute % MINUTES));
+            points.add(bucket != null && bucket.minute == minute
+                    ? bucket.toDTO()
+                    : new MetricsPointDTO(minute * MINUTE_MILLIS, 0, 0, 0));
+        }
+        return points;
+    }
+
+    // Đẩy giá trị hiện tại của các phút vừa đổi (thường chỉ phút hiện tại); không có gì đổi thì không gửi
+    @Scheduled(fixedRate = 1000, initialDelay = 1000)
+    public void publish() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        long now = System.currentTimeMillis() / MINUTE_MILLIS;
+        long from = Math.max(oldestDirtyMinute.getAndSet(Long.MAX_VALUE), now - MINUTES + 1);
+        messagingTemplate.convertAndSend(TOPIC, range(Math.min(from, now), now));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.AdminOrderResponseDTO;
+import com.he180773.testreact.dto.OrderItemDetailDTO;
+import com.he180773.testreact.entity.Order;
+import com.he180773.testreact.entity.OrderItem;
+import com.he180773.testreact.entity.Product;
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.mapper.JsonMapper;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.ProductRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dựng AdminOrderResponseDTO cho một lô đơn hàng. Dòng đơn mang sẵn ảnh chụp sản phẩm lúc đặt nên chỉ cần
+ * một query OrderItem cho cả lô; variant và product chỉ được tải (theo lô, IN) cho các dòng cũ chưa có ảnh chụp.
+ */
+@Component
+public class OrderAssembler {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductRepository productRepository;
+
+    public OrderAssembler(OrderItemRepository orderItemRepository, ProductVariantRepository productVariantRepository,
+                          ProductRepository productRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.productRepository = productRepository;
+    }
+
+    // forAdmin: ảnh đại diện + giá của dòng; trang khách giữ định dạng cũ (ảnh dạng JSON list + đơn giá)
+    public List<AdminOrderResponseDTO> assemble(List<Order> orders, boolean forAdmin) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        Map<Long, List<OrderItem>> itemsByOrder = orderItemRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+
+        Set<Long> variantIds = itemsByOrder.values().stream()
+                .flatMap(List::stream)
+                .filter(item -> !item.hasSnapshot())
+                .map(OrderItem::getProductVariantId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ProductVariant> variants = variantIds.isEmpty() ? Map.of()
+                : productVariantRepository.findAllById(variantIds).stream()
+                        .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+
+        Set<Long> productIds = variants.values().stream()
+                .map(ProductVariant::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of()
+                : productRepository.findAllById(productIds).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<AdminOrderResponseDTO> result = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            AdminOrderResponseDTO dto = new AdminOrderResponseDTO();
+            dto.setId(order.getId());
+            dto.setStatus(order.getStatus());
+            dto.setOrderDate(order.getOrderDate());
+            dto.setPaymentMethod(order.getPaymentMethod());
+            dto.setUserAddress(order.getUserAddress());
+            dto.setTotalAmount(order.getTotalPrice());
+
+            List<OrderItemDetailDTO> details = new ArrayList<>();
+            for (OrderItem item : itemsByOrder.getOrDefault(order.getId(), List.of())) {
+                if (item.hasSnapshot()) {
+                    details.add(new OrderItemDetailDTO(
+                            item.getProductName(),
+                            item.getColor(),
+                            item.getSize(),
+                            item.getQuantity(),
+                            forAdmin || item.getImage() == null ? item.getImage() : JsonMapper.listToJson(List.of(item.getImage())),
+                            forAdmin ? item.getPrice() : item.getUnitPrice()
+                    ));
+                    continue;
+                }
+                ProductVariant variant = variants.get(item.getProductVariantId());
+                Product product = variant != null ? products.get(variant.getProductId()) : null;
+                if (product == null) {
+                    continue; // variant/sản phẩm đã bị xóa
+                }
+                details.add(new OrderItemDetailDTO(
+                        product.getName(),
+                        variant.getColor(),
+                        variant.getSize(),
+                        item.getQuantity(),
+                        forAdmin ? variant.resolvePrimaryImage() : variant.getImage(),
+                        forAdmin ? item.getPrice() : product.getPrice()
+                ));
+            }
+            dto.setItems(details);
+            result.add(dto);
+        }
+        return result;
+    }
+}
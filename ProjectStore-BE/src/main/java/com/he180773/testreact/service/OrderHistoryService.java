@@ -0,0 +1,49 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.AdminOrderResponseDTO;
+import com.he180773.testreact.entity.Order;
+import com.he180773.testreact.repository.OrderRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Lịch sử đơn hàng của khách, dựng bằng số query cố định cho mỗi trang:
+ * một trang Order (+ count), phần còn lại do OrderAssembler nạp theo lô.
+ * getAll() giữ dạng danh sách đầy đủ cho /api/order/get, cũng nạp dòng đơn theo lô.
+ */
+@Service
+public class OrderHistoryService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private final OrderRepository orderRepository;
+    private final OrderAssembler orderAssembler;
+
+    public OrderHistoryService(OrderRepository orderRepository, OrderAssembler orderAssembler) {
+        this.orderRepository = orderRepository;
+        this.orderAssembler = orderAssembler;
+    }
+
+    public List<AdminOrderResponseDTO> getAll(Long userId, String status) {
+        List<Order> orders = (status == null || status.isEmpty())
+                ? orderRepository.findAllByUserIdOrderByOrderDateDesc(userId)
+                : orderRepository.findAllByUserIdAndStatusOrderByOrderDateDesc(userId, status);
+        return orderAssembler.assemble(orders, false);
+    }
+
+    public Page<AdminOrderResponseDTO> getHistory(Long userId, String status, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
+                Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("id")));
+        Page<Order> orders = (status == null || status.isEmpty())
+                ? orderRepository.findByUserId(userId, pageable)
+                : orderRepository.findByUserIdAndStatus(userId, status, pageable);
+
+        return new PageImpl<>(orderAssembler.assemble(orders.getContent(), false), pageable, orders.getTotalElements());
+    }
+}
@@ -1,114 +1,280 @@
 package com.he180773.testreact.service;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.he180773.testreact.dto.BulkOrderResultDTO;
+import com.he180773.testreact.dto.OrderItemDTO;
+import com.he180773.testreact.dto.OrderRequest;
+import com.he180773.testreact.entity.Cart;
 import com.he180773.testreact.entity.Order;
 import com.he180773.testreact.entity.OrderItem;
+import com.he180773.testreact.entity.OrderStatus;
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.entity.Wallet;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.exception.InsufficientFundsException;
+import com.he180773.testreact.exception.OrderTransitionException;
+import com.he180773.testreact.repository.CartItemRepository;
+import com.he180773.testreact.repository.CartRepository;
 import com.he180773.testreact.repository.OrderItemRepository;
 import com.he180773.testreact.repository.OrderRepository;
 import com.he180773.testreact.repository.ProductRepository;
 import com.he180773.testreact.repository.ProductVariantRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import com.he180773.testreact.repository.WalletRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
+    public static final int MAX_BULK_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
-    private final ProductRepository productRepository;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+    private final WalletRepository walletRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
-                        ProductRepository productRepository, ProductVariantRepository productVariantRepository) {
+                        CartRepository cartRepository, CartItemRepository cartItemRepository,
+                        ProductVariantRepository productVariantRepository, ProductRepository productRepository,
+                        InventoryService inventoryService, WalletRepository walletRepository,
+                        ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
-        this.productRepository = productRepository;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
         this.productVariantRepository = productVariantRepository;
-    }
-    public void updateStatus(Long orderId, String status) {
-        orderRepository.findById(orderId).ifPresent(order -> {
-            order.setStatus(status);
-            orderRepository.save(order);
-        });
+        this.productRepository = productRepository;
+        this.inventoryService = inventoryService;
+        this.walletRepository = walletRepository;
+        this.eventPublisher = eventPublisher;
     }
 
-    public List<Order> findOrders(Long userId, String status) {
-        if(status == null|| status.equals("")){
-            return orderRepository.findAllByUserIdOrderByOrderDateDesc(userId);
-        } else{
-            return orderRepository.findAllByUserIdAndStatusOrderByOrderDateDesc(userId, status);
+    // Tạo đơn, các dòng đơn, giữ hàng, trừ ví (nếu trả bằng ví) và xóa các dòng đã đặt khỏi giỏ trong cùng một transaction
+    @Transactional
+    public Order placeOrder(OrderRequest orderRequest) {
+        Order order = new Order();
+        order.setUserId(orderRequest.getUserId());
+        order.setPaymentMethod(orderRequest.getPaymentMethod());
+        try {
+            ObjectMapper objectMapper = new ObjectMapper();
+            order.setUserAddress(objectMapper.writeValueAsString(orderRequest.getAddress()));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Lỗi khi convert addressDTO sang JSON", e);
         }
+        order.setOrderDate(orderRequest.getOrderDate());
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalPrice(orderRequest.getTotalPrice());
+        order.setVersion(0L);
+        orderRepository.save(order);
 
-    }
+        // Các dòng đơn được insert theo batch (id lấy từ sequence pooled), giỏ hàng xóa bằng một câu lệnh
+        List<OrderItemDTO> orderItems = orderRequest.getItems();
+        List<OrderItem> items = new ArrayList<>(orderItems.size());
+        Set<Long> orderedVariantIds = new HashSet<>();
+        for (OrderItemDTO orderItemDTO : orderItems) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrderId(order.getId());
+            orderItem.setQuantity(orderItemDTO.getQuantity());
+            orderItem.setProductVariantId(orderItemDTO.getProductVariantId());
+            orderItem.setPrice(orderItemDTO.getPrice());
+            items.add(orderItem);
+            orderedVariantIds.add(orderItemDTO.getProductVariantId());
+        }
+        snapshotLines(items);
+        orderItemRepository.saveAll(items);
+        // Giữ hàng ngay khi đặt; thiếu hàng -> 409 và toàn bộ đơn bị rollback
+        inventoryService.reserve(order.getId(), items);
+        // Trừ ví sau khi giữ hàng thành công, cùng transaction: thiếu tiền -> 409 và rollback cả đơn lẫn phần giữ hàng
+        if ("wallet".equals(order.getPaymentMethod())
+                && walletRepository.debitIfSufficient(order.getUserId(), orderRequest.getTotalPrice()) == 0) {
+            throw new InsufficientFundsException(order.getUserId());
+        }
 
-    public Page<Product> getTopSellersSorted(Pageable pageable, String name, Integer minPrice, Integer maxPrice) {
-        List<Order> shippedOrders = orderRepository.findByStatus("DELIVERED");
+        Optional<Cart> cart = cartRepository.findByUserId(orderRequest.getUserId());
+        if (cart.isPresent() && !orderedVariantIds.isEmpty()) {
+            cartItemRepository.deleteByCartIdAndProductVariantIdIn(cart.get().getId(), orderedVariantIds);
+        }
+        publish(order, null, OrderStatus.PENDING, 0L);
+        return order;
+    }
 
-        Map<Product, Integer> productQuantityMap = new HashMap<>();
+    // Chép tên, danh mục, bộ sưu tập, màu, size, ảnh đại diện và đơn giá hiện tại vào từng dòng đơn (2 query IN cho cả đơn)
+    private void snapshotLines(List<OrderItem> items) {
+        Set<Long> variantIds = new HashSet<>();
+        for (OrderItem item : items) {
+            if (item.getProductVariantId() != null) {
+                variantIds.add(item.getProductVariantId());
+            }
+        }
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        Map<Long, ProductVariant> variants = new HashMap<>();
+        productVariantRepository.findAllById(variantIds).forEach(variant -> variants.put(variant.getId(), variant));
+        Set<Long> productIds = new HashSet<>();
+        variants.values().forEach(variant -> productIds.add(variant.getProductId()));
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(productIds).forEach(product -> products.put(product.getId(), product));
 
-        for (Order order : shippedOrders) {
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            System.out.println("orderItems: " + orderItems);
-            for (OrderItem item : orderItems) {
-                ProductVariant variant = productVariantRepository.findById(item.getProductVariantId()).orElse(null);
-                System.out.println("variant: " + variant.getId());
+        for (OrderItem item : items) {
+            ProductVariant variant = variants.get(item.getProductVariantId());
+            Product product = variant != null ? products.get(variant.getProductId()) : null;
+            if (product == null) {
+                continue; // variant không tồn tại: reserve() sẽ từ chối đơn
+            }
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setCategory(product.getCategory());
+            item.setCollectionId(product.getCollectionId());
+            item.setColor(variant.getColor());
+            item.setSize(variant.getSize());
+            item.setImage(variant.resolvePrimaryImage());
+            item.setUnitPrice(variant.getPrice() != null ? variant.getPrice() : product.getPrice());
+        }
+    }
 
-                Product product = productRepository.findById(variant.getProductId()).orElse(null);
-                System.out.println("product: " + product.getId() + " - " + product.getName());
+    /**
+     * Chuyển đơn sang trạng thái mới bằng một câu UPDATE có điều kiện (trạng thái + version đã đọc).
+     * Bước chuyển không hợp lệ, hoặc đơn vừa bị request khác đổi trước, thì ném OrderTransitionException (409).
+     * Thành công thì phát OrderStatusChangedEvent; các listener chạy trong cùng transaction nên lỗi ở đó rollback cả bước chuyển.
+     * Trả về null nếu không có đơn.
+     */
+    @Transactional
+    public Order transition(Long orderId, String toStatus) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return null;
+        }
+        String fromStatus = order.getStatus();
+        if (!OrderStatus.canTransition(fromStatus, toStatus)) {
+            throw new OrderTransitionException("Không thể chuyển đơn " + orderId + " từ " + fromStatus + " sang " + toStatus);
+        }
+        long version = order.getVersion() != null ? order.getVersion() : 0L;
+        if (orderRepository.transition(orderId, fromStatus, toStatus, version) == 0) {
+            throw new OrderTransitionException("Đơn " + orderId + " vừa được cập nhật bởi thao tác khác, vui lòng tải lại");
+        }
+        order.setStatus(toStatus);
+        order.setVersion(version + 1);
+        publish(order, fromStatus, toStatus, version + 1);
+        return order;
+    }
 
+    private void publish(Order order, String fromStatus, String toStatus, long version) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), order.getUserId(), fromStatus, toStatus,
+                order.getTotalPrice(), order.getPaymentMethod(), order.getOrderDate(), version));
+    }
 
-                int quantity = item.getQuantity();
-                productQuantityMap.put(product,
-                        productQuantityMap.getOrDefault(product, 0) + quantity);
+    // Hủy đơn: hàng được trả về kho qua event; hoàn tiền ví nếu thanh toán bằng ví. Trả về số dư ví sau khi hoàn (null nếu không có ví)
+    @Transactional
+    public Integer cancel(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return null;
+        }
+        if (!OrderStatus.CANCELLED.equals(order.getStatus())) { // đã hủy rồi thì không hoàn tiền lần nữa
+            transition(orderId, OrderStatus.CANCELLED);
+            if ("wallet".equals(order.getPaymentMethod()) && order.getTotalPrice() != null) {
+                walletRepository.addBalance(order.getUserId(), order.getTotalPrice());
             }
         }
+        return walletRepository.findByUserId(order.getUserId()).map(Wallet::getBalance).orElse(null);
+    }
+
+    /**
+     * Chuyển nhiều đơn sang cùng một trạng thái trong một transaction và trả về kết quả của từng đơn theo thứ tự yêu cầu.
+     * Các đơn được khóa theo thứ tự id, kiểm tra bước chuyển, rồi cập nhật bằng một câu UPDATE cho mỗi trạng thái nguồn.
+     * Kho và ví được xử lý theo tập (InventoryService.commitAll/releaseAll, refundWalletOrders) thay vì từng đơn.
+     * Đơn đã ở sẵn trạng thái đích được coi là thành công và không bị xử lý lại.
+     */
+    @Transactional
+    public List<BulkOrderResultDTO> bulkTransition(List<Long> orderIds, String toStatus) {
+        Set<Long> ids = new LinkedHashSet<>(orderIds);
+        ids.remove(null);
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Tối đa " + MAX_BULK_SIZE + " đơn mỗi lần");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Order> orders = new HashMap<>();
+        for (Order order : orderRepository.lockAllByIdIn(ids)) {
+            orders.put(order.getId(), order);
+        }
+        // Đơn cũ chưa giữ hàng hoặc đã hết hạn giữ phải trừ kho từng đơn (có thể thiếu hàng), không đưa vào lô
+        Set<Long> notReserved = OrderStatus.CONFIRMED.equals(toStatus) && !orders.isEmpty()
+                ? inventoryService.findOrdersWithoutReservations(orders.keySet())
+                : Set.of();
 
-        // Lọc theo tên và giá
-        List<Product> filtered = productQuantityMap.keySet().stream()
-                .filter(p -> {
-                    boolean matchName = (name == null || p.getName().toLowerCase().contains(name.toLowerCase()));
-                    boolean matchPrice = (minPrice == null || p.getPrice() >= minPrice)
-                            && (maxPrice == null || p.getPrice() <= maxPrice);
-                    return matchName && matchPrice;
-                })
-                .collect(Collectors.toList());
-        System.out.println("filtered: " + filtered);
-
-        // Sort theo pageable (áp dụng sort fields)
-        Comparator<Product> comparator = Comparator.comparing(Product::getId); // mặc định
-
-        if (pageable.getSort().isSorted()) {
-            for (Sort.Order order : pageable.getSort()) {
-                if (order.getProperty().equalsIgnoreCase("price")) {
-                    comparator = Comparator.comparing(Product::getPrice);
-                } else if (order.getProperty().equalsIgnoreCase("name")) {
-                    comparator = Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER);
-                }
-
-                if (order.getDirection() == Sort.Direction.DESC) {
-                    comparator = comparator.reversed();
-                }
+        List<BulkOrderResultDTO> results = new ArrayList<>(ids.size());
+        Map<String, List<Long>> idsByFromStatus = new TreeMap<>();
+        List<OrderStatusChangedEvent> transitions = new ArrayList<>();
+        for (Long id : ids) {
+            Order order = orders.get(id);
+            if (order == null) {
+                results.add(new BulkOrderResultDTO(id, false, null, "Không tìm thấy đơn"));
+                continue;
+            }
+            String fromStatus = order.getStatus();
+            if (toStatus.equals(fromStatus)) {
+                results.add(new BulkOrderResultDTO(id, true, fromStatus, "Đơn đã ở trạng thái " + toStatus));
+            } else if (!OrderStatus.canTransition(fromStatus, toStatus)) {
+                results.add(new BulkOrderResultDTO(id, false, fromStatus, "Không thể chuyển từ " + fromStatus + " sang " + toStatus));
+            } else if (notReserved.contains(id)) {
+                results.add(new BulkOrderResultDTO(id, false, fromStatus, "Đơn chưa giữ hàng, hãy duyệt riêng"));
+            } else {
+                idsByFromStatus.computeIfAbsent(fromStatus, status -> new ArrayList<>()).add(id);
+                long version = order.getVersion() != null ? order.getVersion() + 1 : 1L;
+                transitions.add(new OrderStatusChangedEvent(id, order.getUserId(), fromStatus, toStatus,
+                        order.getTotalPrice(), order.getPaymentMethod(), order.getOrderDate(), version));
+                results.add(new BulkOrderResultDTO(id, true, toStatus, null));
             }
         }
+        if (transitions.isEmpty()) {
+            return results;
+        }
 
-        List<Product> sorted = filtered.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
-        System.out.println("sorted: " + sorted);
+        idsByFromStatus.forEach((fromStatus, group) -> orderRepository.transitionAll(group, fromStatus, toStatus));
+        if (OrderStatus.CANCELLED.equals(toStatus)) {
+            List<Long> cancelledIds = transitions.stream().map(OrderStatusChangedEvent::getOrderId).toList();
+            walletRepository.refundWalletOrders(cancelledIds);
+        }
+        eventPublisher.publishEvent(new OrdersTransitionedEvent(transitions));
+        return results;
+    }
+
+    /**
+     * Hàng giữ quá hạn (mặc định 48 giờ): chỉ trả hàng về kho, không hủy đơn. Đơn chưa duyệt (kể cả COD)
+     * vẫn PENDING và được giữ hàng lại khi admin duyệt; lúc đó hết hàng thì duyệt bị từ chối.
+     * Đơn đã qua PENDING thì chỉ đưa reservation về đúng trạng thái của đơn.
+     */
+    @Transactional
+    public void expireReservation(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null || OrderStatus.CANCELLED.equals(order.getStatus()) || OrderStatus.PENDING.equals(order.getStatus())) {
+            inventoryService.release(orderId);
+        } else {
+            inventoryService.commit(orderId);
+        }
+    }
 
-        // Paging thủ công
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), sorted.size());
-        List<Product> pageContent = (start >= sorted.size()) ? Collections.emptyList() : sorted.subList(start, end);
+    public List<Order> findOrders(Long userId, String status) {
+        if(status == null|| status.equals("")){
+            return orderRepository.findAllByUserIdOrderByOrderDateDesc(userId);
+        } else{
+            return orderRepository.findAllByUserIdAndStatusOrderByOrderDateDesc(userId, status);
+        }
 
-        return new PageImpl<>(pageContent, pageable, sorted.size());
     }
 
 }
@@ -0,0 +1,270 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.OrderSketchStatsDTO;
+import com.he180773.testreact.entity.OrderSketch;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.repository.OrderRepository;
+import com.he180773.testreact.repository.OrderSketchRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thống kê gần đúng theo ngày cho dashboard: số khách khác nhau (HyperLogLog theo userId) và phân vị giá trị đơn
+ * (QuantileSketch theo totalPrice) của các đơn được đặt. Đơn mới được cộng vào sketch "delta" trong bộ nhớ sau khi commit;
+ * mỗi 30 giây delta được gộp vào dòng OrderSketch của ngày (khóa dòng, gộp, ghi lại). Vì sketch gộp được, nhiều node
+ * có thể cùng ghi một ngày, và thống kê của tháng/khoảng bất kỳ là phép gộp các ngày, không quét bảng Order.
+ */
+@Service
+public class OrderSketchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSketchService.class);
+    private static final int REBUILD_CHUNK_SIZE = 5000;
+
+    // Sketch của một ngày; mọi truy cập đều khóa trên chính đối tượng
+    private static final class DaySketch {
+        private final HyperLogLog users;
+        private final QuantileSketch prices;
+        private long orders;
+
+        private DaySketch() {
+            this(new HyperLogLog(), new QuantileSketch(), 0);
+        }
+
+        private DaySketch(HyperLogLog users, QuantileSketch prices, long orders) {
+            this.users = users;
+            this.prices = prices;
+            this.orders = orders;
+        }
+
+        private static DaySketch of(OrderSketch row) {
+            return new DaySketch(HyperLogLog.fromBytes(row.getUserHll()), QuantileSketch.fromBytes(row.getPriceSketch()),
+                    row.getOrderCount() != null ? row.getOrderCount() : 0);
+        }
+
+        private synchronized void add(Long userId, Integer totalPrice) {
+            if (userId != null) {
+                users.add(userId);
+            }
+            prices.add(totalPrice != null ? totalPrice : 0);
+            orders++;
+        }
+
+        private void mergeFrom(DaySketch other) {
+            DaySketch snapshot = other.copy(); // không giữ hai khóa cùng lúc
+            synchronized (this) {
+                users.merge(snapshot.users);
+                prices.merge(snapshot.prices);
+                orders += snapshot.orders;
+            }
+        }
+
+        private synchronized DaySketch copy() {
+            return new DaySketch(users.copy(), prices.copy(), orders);
+        }
+
+        private synchronized void writeTo(OrderSketch row) {
+            row.setOrderCount(orders);
+            row.setUserHll(users.toBytes());
+            row.setPriceSketch(prices.toBytes());
+        }
+    }
+
+    private final OrderSketchRepository orderSketchRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Ngày -> phần chưa ghi xuống DB
+    private final Map<LocalDate, DaySketch> pending = new ConcurrentHashMap<>();
+    // Đơn commit trong lúc rebuild() chạy, giữ riêng để quyết định sau khi biết lần quét đã phủ tới id nào
+    private record PlacedOrder(Long orderId, LocalDate day, Long userId, Integer totalPrice) { }
+    private final Object rebuildLock = new Object();
+    private List<PlacedOrder> placedDuringRebuild;
+
+    public OrderSketchService(OrderSketchRepository orderSketchRepository, OrderRepository orderRepository,
+                              TransactionTemplate transactionTemplate) {
+        this.orderSketchRepository = orderSketchRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (!event.isPlacement() || event.getOrderDate() == null) {
+            return;
+        }
+        PlacedOrder order = new PlacedOrder(event.getOrderId(), event.getOrderDate().toLocalDate(),
+                event.getUserId(), event.getTotalPrice());
+        // Cộng trong khóa để rebuild() không thể xóa delta giữa lúc kiểm tra và lúc cộng
+        Runnable record = () -> {
+            synchronized (rebuildLock) {
+                if (placedDuringRebuild != null) {
+                    placedDuringRebuild.add(order);
+                } else {
+                    record(order);
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record.run();
+            }
+        });
+    }
+
+    // add() nằm trong compute để không lọt vào một delta mà flush() vừa lấy ra khỏi map
+    private void record(PlacedOrder order) {
+        pending.compute(order.day(), (key, sketch) -> {
+            DaySketch target = sketch != null ? sketch : new DaySketch();
+            target.add(order.userId(), order.totalPrice());
+            return target;
+        });
+    }
+
+    // Gộp phần delta của từng ngày vào dòng đã lưu; lỗi thì trả delta lại để lần sau ghi tiếp
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public synchronized void flush() {
+        for (LocalDate day : new ArrayList<>(pending.keySet())) {
+            DaySketch delta = pending.remove(day);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    OrderSketch row = orderSketchRepository.lockByBucketDate(day).orElse(null);
+                    DaySketch merged = row != null ? DaySketch.of(row) : new DaySketch();
+                    merged.mergeFrom(delta);
+                    if (row == null) {
+                        row = new OrderSketch();
+                        row.setBucketDate(day);
+                    }
+                    merged.writeTo(row);
+                    orderSketchRepository.save(row);
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Order sketch flush failed for {}, will retry", day, e);
+                pending.compute(day, (key, sketch) -> {
+                    DaySketch target = sketch != null ? sketch : new DaySketch();
+                    target.mergeFrom(delta);
+                    return target;
+                });
+            }
+        }
+    }
+
+    // Thống kê trong [from, to), gom theo granularity = day | month
+    public List<OrderSketchStatsDTO> getStats(LocalDate from, LocalDate to, String granularity) {
+        boolean monthly = "month".equals(granularity);
+        Map<String, DaySketch> byPeriod = new TreeMap<>();
+        for (OrderSketch row : orderSketchRepository.findBetween(from, to)) {
+            merge(byPeriod, period(row.getBucketDate(), monthly), DaySketch.of(row));
+        }
+        pending.forEach((day, delta) -> {
+            if (!day.isBefore(from) && day.isBefore(to)) {
+                merge(byPeriod, period(day, monthly), delta);
+            }
+        });
+
+        List<OrderSketchStatsDTO> result = new ArrayList<>(byPeriod.size());
+        byPeriod.forEach((period, sketch) -> result.add(new OrderSketchStatsDTO(period, sketch.orders,
+                sketch.users.estimate(), Math.round(sketch.prices.quantile(0.5)),
+                Math.round(sketch.prices.quantile(0.9)), Math.round(sketch.prices.quantile(0.99)))));
+        return result;
+    }
+
+    private void merge(Map<String, DaySketch> byPeriod, String period, DaySketch sketch) {
+        byPeriod.computeIfAbsent(period, key -> new DaySketch()).mergeFrom(sketch);
+    }
+
+    private String period(LocalDate day, boolean monthly) {
+        return monthly ? YearMonth.from(day).toString() : day.toString();
+    }
+
+    /**
+     * Dựng lại toàn bộ sketch từ bảng Order, quét theo lô (keyset theo id) để không giữ cả bảng trong heap.
+     * Trong lúc dựng, đơn mới commit được giữ riêng thay vì cộng vào delta; delta đang chờ bị bỏ vì các đơn đó
+     * đã commit nên nằm trong lần quét. Lần quét chỉ tới id lớn nhất lấy lúc bắt đầu: sau khi ghi xong, đơn giữ riêng
+     * có id lớn hơn mốc được cộng lại vào delta, đơn có id không lớn hơn mốc bị bỏ vì lần quét đã tính.
+     */
+    public synchronized int rebuild() {
+        synchronized (rebuildLock) {
+            placedDuringRebuild = new ArrayList<>();
+        }
+        pending.clear();
+        try {
+            Long maxId = orderRepository.findMaxId();
+            long highWater = maxId != null ? maxId : 0L;
+            int days = rebuildUpTo(highWater);
+            synchronized (rebuildLock) {
+                placedDuringRebuild.stream()
+                        .filter(order -> order.orderId() == null || order.orderId() > highWater)
+                        .forEach(this::record);
+            }
+            return days;
+        } catch (RuntimeException e) {
+            // Dựng lại thất bại: không biết lần quét đã tính những đơn nào, giữ lại mọi đơn mới để không mất
+            synchronized (rebuildLock) {
+                placedDuringRebuild.forEach(this::record);
+            }
+            throw e;
+        } finally {
+            synchronized (rebuildLock) {
+                placedDuringRebuild = null;
+            }
+        }
+    }
+
+    private int rebuildUpTo(long highWater) {
+        Map<LocalDate, DaySketch> days = new HashMap<>();
+        Long afterId = 0L;
+        while (true) {
+            List<Object[]> rows = orderRepository.findSketchRows(afterId, highWater, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            for (Object[] row : rows) {
+                LocalDateTime orderDate = (LocalDateTime) row[3];
+                if (orderDate != null) {
+                    days.computeIfAbsent(orderDate.toLocalDate(), key -> new DaySketch()).add((Long) row[1], (Integer) row[2]);
+                }
+            }
+            if (rows.size() < REBUILD_CHUNK_SIZE) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            orderSketchRepository.deleteAllRows();
+            List<OrderSketch> entities = new ArrayList<>(days.size());
+            days.forEach((day, sketch) -> {
+                OrderSketch entity = new OrderSketch();
+                entity.setBucketDate(day);
+                sketch.writeTo(entity);
+                entities.add(entity);
+            });
+            orderSketchRepository.saveAll(entities);
+        });
+        logger.info("Rebuilt order sketches: {} days", days.size());
+        return days.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,156 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.repository.ProductFacetRepository;
+import com.he180773.testreact.repository.ProductRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Các cột tổng hợp của Product (tồn kho, khoảng giá, size/màu còn hàng) tính từ ProductVariant.
+ * Việc tính được làm bằng câu lệnh UPDATE/INSERT ... SELECT trong DB. Trong một transaction, các sản phẩm
+ * cần tính lại được gom lại và chỉ tính một lần ngay trước commit, sau khi đã khóa dòng Product theo thứ tự id:
+ * transaction nào commit sau sẽ tính lại sau cùng và thấy mọi thay đổi variant đã commit trước nó.
+ */
+@Service
+public class ProductAggregateService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final Object PENDING_KEY = new Object();
+
+    private final ProductRepository productRepository;
+    private final ProductFacetRepository productFacetRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductAggregateService(ProductRepository productRepository, ProductFacetRepository productFacetRepository,
+                                   ProductVariantRepository productVariantRepository,
+                                   ProductService productService, TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.productFacetRepository = productFacetRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.productService = productService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Đánh dấu sản phẩm cần tính lại; nếu không có transaction thì mở một transaction riêng
+    public void recompute(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> recompute(id));
+            return;
+        }
+        pendingProductIds().add(id);
+    }
+
+    // Xóa sản phẩm cùng variant và facet của nó, không để lại dòng facet mồ côi; catalog bỏ sản phẩm sau khi commit
+    public void delete(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> delete(id));
+            return;
+        }
+        productFacetRepository.deleteByProductId(id);
+        productVariantRepository.deleteAllInBatch(productVariantRepository.findAllByProductId(id));
+        productRepository.deleteById(id);
+        pendingProductIds().remove(id);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.onProductDeleted(id);
+            }
+        });
+    }
+
+    // Dùng cho thao tác hàng loạt: tính lại theo từng nhóm rồi dựng lại catalog một lần
+    public void recompute(Collection<Long> ids) {
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(ids));
+        for (int from = 0; from < sorted.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = sorted.subList(from, Math.min(from + CHUNK_SIZE, sorted.size()));
+            transactionTemplate.executeWithoutResult(status -> apply(chunk));
+        }
+        productService.rebuildCatalog();
+    }
+
+    // Dựng lại cho toàn bộ catalog: duyệt id theo từng nhóm, mỗi nhóm một transaction, rồi dựng lại catalog một lần
+    public int recomputeAll() {
+        int count = 0;
+        Long afterId = 0L;
+        List<Long> chunk;
+        while (!(chunk = productRepository.findIdsAfter(afterId, PageRequest.of(0, CHUNK_SIZE))).isEmpty()) {
+            List<Long> ids = chunk;
+            transactionTemplate.executeWithoutResult(status -> apply(ids));
+            count += ids.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+        productService.rebuildCatalog();
+        return count;
+    }
+
+    // Điền primary_image cho các variant cũ theo từng nhóm id; dòng có danh sách ảnh rỗng vẫn null nhưng không bị đọc lại
+    public void backfillPrimaryImages() {
+        Long afterId = 0L;
+        while (afterId != null) {
+            Long from = afterId;
+            afterId = transactionTemplate.execute(status -> {
+                List<ProductVariant> variants = productVariantRepository.findMissingPrimaryImage(from, PageRequest.of(0, CHUNK_SIZE));
+                for (ProductVariant variant : variants) {
+                    variant.setPrimaryImage(variant.resolvePrimaryImage());
+                }
+                return variants.isEmpty() ? null : variants.get(variants.size() - 1).getId();
+            });
+        }
+    }
+
+    private Set<Long> pendingProductIds() {
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending != null) {
+            return pending;
+        }
+        Set<Long> ids = new TreeSet<>();
+        TransactionSynchronizationManager.bindResource(PENDING_KEY, ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                List<Long> sorted = new ArrayList<>(ids);
+                for (int from = 0; from < sorted.size(); from += CHUNK_SIZE) {
+                    apply(sorted.subList(from, Math.min(from + CHUNK_SIZE, sorted.size())));
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                for (Long id : ids) {
+                    productService.onProductChanged(id);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+            }
+        });
+        return ids;
+    }
+
+    private void apply(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        productRepository.lockAllByIdIn(ids);
+        productRepository.recomputeAggregates(ids);
+        productFacetRepository.deleteByProductIdIn(ids);
+        productFacetRepository.insertSizeFacets(ids);
+        productFacetRepository.insertColorFacets(ids);
+    }
+}
@@ -0,0 +1,98 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.ProductDetailDTO;
+import com.he180773.testreact.dto.ProductVariantDTO;
+import com.he180773.testreact.entity.Product;
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.event.CatalogChangedEvent;
+import com.he180773.testreact.mapper.JsonMapper;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dữ liệu trang chi tiết sản phẩm (product + variant + ảnh đã parse + ma trận màu x size) trong một lần gọi.
+ * Kết quả được cache theo sản phẩm và bị xóa khi catalog báo sản phẩm đó thay đổi.
+ */
+@Service
+public class ProductDetailService {
+
+    private static final int MAX_CACHED_PRODUCTS = 2000;
+
+    private final ProductService productService;
+    private final ProductVariantRepository productVariantRepository;
+
+    private final Map<Long, ProductDetailDTO> cache = new ConcurrentHashMap<>();
+
+    public ProductDetailService(ProductService productService, ProductVariantRepository productVariantRepository) {
+        this.productService = productService;
+        this.productVariantRepository = productVariantRepository;
+    }
+
+    public ProductDetailDTO getDetail(Long productId) {
+        ProductDetailDTO cached = cache.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+        CatalogSnapshot catalog = productService.getCatalog();
+        Product product = catalog.getProduct(productId);
+        if (product == null) {
+            return null;
+        }
+        ProductDetailDTO detail = build(product, productVariantRepository.findAllByProductId(productId));
+        // Chỉ cache nếu catalog không đổi trong lúc đang đọc variant, tránh giữ lại dữ liệu cũ
+        if (productService.getCatalog().getVersion() == catalog.getVersion()) {
+            if (cache.size() >= MAX_CACHED_PRODUCTS) {
+                cache.clear();
+            }
+            cache.put(productId, detail);
+        }
+        return detail;
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isFullRebuild()) {
+            cache.clear();
+        } else {
+            cache.remove(event.getProductId());
+        }
+    }
+
+    private ProductDetailDTO build(Product product, List<ProductVariant> variants) {
+        List<ProductVariantDTO> variantDTOs = new ArrayList<>(variants.size());
+        Set<String> colors = new LinkedHashSet<>();
+        Set<String> sizes = new LinkedHashSet<>();
+        Map<String, Map<String, Integer>> availability = new LinkedHashMap<>();
+        Integer minPrice = null;
+        Integer maxPrice = null;
+
+        for (ProductVariant variant : variants) {
+            variantDTOs.add(new ProductVariantDTO(
+                    variant.getId(),
+                    variant.getColor(),
+                    variant.getSize(),
+                    variant.getPrice(),
+                    variant.getQuantity(),
+                    variant.getProductId(),
+                    Collections.unmodifiableList(JsonMapper.jsonToList(variant.getImage()))
+            ));
+            int quantity = variant.getQuantity() != null ? variant.getQuantity() : 0;
+            if (variant.getColor() != null && variant.getSize() != null) {
+                colors.add(variant.getColor());
+                sizes.add(variant.getSize());
+                availability.computeIfAbsent(variant.getColor(), c -> new LinkedHashMap<>())
+                        .merge(variant.getSize(), quantity, Integer::sum);
+            }
+            if (variant.getPrice() != null) {
+                minPrice = minPrice == null ? variant.getPrice() : Math.min(minPrice, variant.getPrice());
+                maxPrice = maxPrice == null ? variant.getPrice() : Math.max(maxPrice, variant.getPrice());
+            }
+        }
+        return new ProductDetailDTO(product, Collections.unmodifiableList(variantDTOs),
+                List.copyOf(colors), List.copyOf(sizes), availability, minPrice, maxPrice);
+    }
+}
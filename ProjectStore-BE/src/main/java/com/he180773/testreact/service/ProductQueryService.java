@@ -0,0 +1,210 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.ProductQuery;
+import com.he180773.testreact.dto.ProductQuery.SortOrder;
+import com.he180773.testreact.dto.ProductSliceDTO;
+import com.he180773.testreact.entity.Product;
+import com.he180773.testreact.entity.ProductFacet;
+import com.he180773.testreact.entity.ProductVariant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Một engine duy nhất cho mọi trang danh sách sản phẩm có lọc/sắp xếp.
+ * scroll() dùng keyset (seek) pagination: trang sau chỉ lấy các dòng "sau" dòng cuối của trang trước
+ * theo (khóa sắp xếp, id), nên trang sâu tốn như trang đầu và không cần COUNT.
+ * Sản phẩm chưa có giá/tên vẫn được trả về: chúng luôn nằm cuối (cả tăng lẫn giảm dần) và cursor ghi nhận
+ * khóa null, nên duyệt hết các trang vẫn gặp đủ mọi sản phẩm khớp bộ lọc.
+ */
+@Service
+public class ProductQueryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final EntityManager entityManager;
+
+    public ProductQueryService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public ProductSliceDTO scroll(ProductQuery query, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> cq = cb.createQuery(Product.class);
+        Root<Product> p = cq.from(Product.class);
+
+        List<Predicate> predicates = filters(cb, cq, p, query);
+        if (cursor != null && !cursor.isBlank()) {
+            predicates.add(seekAfter(cb, p, query.getSort(), decodeCursor(cursor, query.getSort())));
+        }
+        cq.select(p).where(predicates.toArray(new Predicate[0])).orderBy(ordering(cb, p, query.getSort()));
+
+        List<Product> rows = entityManager.createQuery(cq)
+                .setMaxResults(limit + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > limit;
+        List<Product> items = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? encodeCursor(items.get(items.size() - 1), query.getSort()) : null;
+        return new ProductSliceDTO(new ArrayList<>(items), nextCursor, hasNext);
+    }
+
+    // Giữ cho các endpoint cũ theo số trang (frontend hiện tại), dùng chung bộ lọc với scroll()
+    public Page<Product> page(ProductQuery query, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Product> cq = cb.createQuery(Product.class);
+        Root<Product> p = cq.from(Product.class);
+        cq.select(p)
+                .where(filters(cb, cq, p, query).toArray(new Predicate[0]))
+                .orderBy(ordering(cb, p, query.getSort()));
+        List<Product> content = entityManager.createQuery(cq)
+                .setFirstResult(Math.max(page, 0) * limit)
+                .setMaxResults(limit)
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Product> countRoot = countQuery.from(Product.class);
+        countQuery.select(cb.count(countRoot))
+                .where(filters(cb, countQuery, countRoot, query).toArray(new Predicate[0]));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        return new PageImpl<>(content, PageRequest.of(Math.max(page, 0), limit), total);
+    }
+
+    private List<Predicate> filters(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Product> p, ProductQuery query) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (query.getCategory() != null) {
+            predicates.add(cb.equal(p.get("category"), query.getCategory()));
+        }
+        if (query.getName() != null) {
+            predicates.add(cb.like(cb.lower(p.get("name")), "%" + query.getName().toLowerCase() + "%"));
+        }
+        if (query.getArrivedAfter() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("arrivedDate"), query.getArrivedAfter()));
+        }
+        // Khoảng min/max variant giao với khoảng lọc là điều kiện cần (range scan trên min_price/max_price);
+        // EXISTS trên (product_id, price) bảo đảm thật sự có một variant nằm trong khoảng
+        if (query.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("maxPrice"), query.getMinPrice()));
+        }
+        if (query.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.get("minPrice"), query.getMaxPrice()));
+        }
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            predicates.add(hasVariantPriced(cb, cq, p, query.getMinPrice(), query.getMaxPrice()));
+        }
+        if (query.getSize() != null) {
+            predicates.add(hasFacet(cb, cq, p, ProductFacet.SIZE, query.getSize()));
+        }
+        if (query.getColor() != null) {
+            predicates.add(hasFacet(cb, cq, p, ProductFacet.COLOR, query.getColor()));
+        }
+        return predicates;
+    }
+
+    // Seek trên index (facet_type, facet_value, product_id)
+    private Predicate hasFacet(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Product> p, String type, String value) {
+        Subquery<Long> facets = cq.subquery(Long.class);
+        Root<ProductFacet> f = facets.from(ProductFacet.class);
+        facets.select(f.get("productId")).where(
+                cb.equal(f.get("facetType"), type),
+                cb.equal(f.get("facetValue"), value),
+                cb.equal(f.get("productId"), p.get("id")));
+        return cb.exists(facets);
+    }
+
+    private Predicate hasVariantPriced(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Product> p,
+                                       Integer minPrice, Integer maxPrice) {
+        Subquery<Long> variants = cq.subquery(Long.class);
+        Root<ProductVariant> v = variants.from(ProductVariant.class);
+        List<Predicate> conditions = new ArrayList<>();
+        conditions.add(cb.equal(v.get("productId"), p.get("id")));
+        if (minPrice != null) {
+            conditions.add(cb.greaterThanOrEqualTo(v.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            conditions.add(cb.lessThanOrEqualTo(v.get("price"), maxPrice));
+        }
+        variants.select(v.get("id")).where(conditions.toArray(new Predicate[0]));
+        return cb.exists(variants);
+    }
+
+    // NULL luôn xếp cuối; viết bằng CASE vì SQL Server và Postgres mặc định xếp NULL ngược nhau
+    private List<Order> ordering(CriteriaBuilder cb, Root<Product> p, SortOrder sort) {
+        return switch (sort) {
+            case PRICE_ASC -> List.of(cb.asc(nullsLast(cb, p.get("price"))), cb.asc(p.get("price")), cb.asc(p.get("id")));
+            case PRICE_DESC -> List.of(cb.asc(nullsLast(cb, p.get("price"))), cb.desc(p.get("price")), cb.desc(p.get("id")));
+            case NAME_ASC -> List.of(cb.asc(nullsLast(cb, p.get("name"))), cb.asc(p.get("name")), cb.asc(p.get("id")));
+            case NAME_DESC -> List.of(cb.asc(nullsLast(cb, p.get("name"))), cb.desc(p.get("name")), cb.desc(p.get("id")));
+            default -> List.of(cb.desc(p.get("id")));
+        };
+    }
+
+    private Expression<Integer> nullsLast(CriteriaBuilder cb, Path<?> key) {
+        return cb.<Integer>selectCase().when(cb.isNull(key), 1).otherwise(0);
+    }
+
+    private Predicate seekAfter(CriteriaBuilder cb, Root<Product> p, SortOrder sort, Cursor cursor) {
+        Path<Long> id = p.get("id");
+        return switch (sort) {
+            case PRICE_ASC -> after(cb, p.get("price"), cursor.key != null ? Integer.valueOf(cursor.key) : null, id, cursor.id, true);
+            case PRICE_DESC -> after(cb, p.get("price"), cursor.key != null ? Integer.valueOf(cursor.key) : null, id, cursor.id, false);
+            case NAME_ASC -> after(cb, p.get("name"), cursor.key, id, cursor.id, true);
+            case NAME_DESC -> after(cb, p.get("name"), cursor.key, id, cursor.id, false);
+            default -> cb.lessThan(id, cursor.id);
+        };
+    }
+
+    // Dòng cuối có khóa null: chỉ còn các dòng null phía sau. Ngược lại các dòng null (xếp cuối) luôn ở phía sau
+    private <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder cb, Path<Y> key, Y lastKey,
+                                                             Path<Long> id, Long lastId, boolean ascending) {
+        Predicate idAfter = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+        if (lastKey == null) {
+            return cb.and(cb.isNull(key), idAfter);
+        }
+        Predicate keyAfter = ascending ? cb.greaterThan(key, lastKey) : cb.lessThan(key, lastKey);
+        return cb.or(keyAfter, cb.and(cb.equal(key, lastKey), idAfter), cb.isNull(key));
+    }
+
+    record Cursor(Long id, String key) { }
+
+    // Cursor = base64url("SORT|id|key"), key đặt cuối vì tên sản phẩm có thể chứa '|'; khóa null -> "SORT|id"
+    static String encodeCursor(Product last, SortOrder sort) {
+        String key = switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> last.getPrice() != null ? String.valueOf(last.getPrice()) : null;
+            case NAME_ASC, NAME_DESC -> last.getName();
+            default -> "";
+        };
+        String raw = sort.name() + "|" + last.getId() + (key != null ? "|" + key : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor, SortOrder sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length < 2 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Cursor không khớp với kiểu sắp xếp");
+            }
+            Cursor decoded = new Cursor(Long.valueOf(parts[1]), parts.length == 3 ? parts[2] : null);
+            if ((sort == SortOrder.PRICE_ASC || sort == SortOrder.PRICE_DESC) && decoded.key != null) {
+                Integer.valueOf(decoded.key);
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+}
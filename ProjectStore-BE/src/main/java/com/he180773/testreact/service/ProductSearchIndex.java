@@ -0,0 +1,165 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục đảo (inverted index) trong bộ nhớ cho tên, danh mục và bộ sưu tập của sản phẩm.
+ * Từ khóa được bỏ dấu tiếng Việt ("Áo Lam" -> "ao lam") để tìm không dấu vẫn khớp.
+ * Đọc không khóa; ghi được đồng bộ và chỉ cập nhật các term của sản phẩm thay đổi.
+ * Dựng lại toàn bộ thì tạo chỉ mục mới rồi thay bằng một lần gán, nên lượt tìm đang chạy
+ * luôn thấy trọn bản cũ hoặc trọn bản mới.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int COLLECTION_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 1;
+    // Giới hạn số term được mở rộng cho một tiền tố, tránh quét cả từ điển với tiền tố 1 ký tự
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final class Index {
+        final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+        final Map<Long, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+    }
+
+    private volatile Index current = new Index();
+
+    public synchronized void rebuild(java.util.Collection<Product> products, Map<Long, String> collectionNames) {
+        Index fresh = new Index();
+        for (Product product : products) {
+            index(fresh, product, collectionNames.get(product.getCollectionId()));
+        }
+        current = fresh;
+    }
+
+    public synchronized void update(Product product, String collectionName) {
+        remove(current, product.getId());
+        index(current, product, collectionName);
+    }
+
+    public synchronized void remove(Long productId) {
+        remove(current, productId);
+    }
+
+    private static void remove(Index index, Long productId) {
+        Map<String, Integer> terms = index.documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> ids = index.postings.get(term);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    index.postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Trả về id sản phẩm theo thứ tự điểm giảm dần. Mọi từ trong câu tìm kiếm đều phải khớp
+     * (nguyên từ hoặc tiền tố); khớp nguyên từ được điểm gấp đôi khớp tiền tố.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Index index = current;
+        Map<Long, Integer> scores = null;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Map<Long, Integer> tokenScores = scoreToken(index, token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Integer>comparingByKey(Comparator.reverseOrder())));
+
+        List<Long> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).getKey());
+        }
+        return result;
+    }
+
+    private static Map<Long, Integer> scoreToken(Index index, String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        int expanded = 0;
+        for (Map.Entry<String, Map<Long, Integer>> entry : index.postings.tailMap(token, true).entrySet()) {
+            String term = entry.getKey();
+            if (!term.startsWith(token) || expanded++ >= MAX_PREFIX_TERMS) {
+                break;
+            }
+            int multiplier = term.length() == token.length() ? 2 : 1;
+            for (Map.Entry<Long, Integer> posting : entry.getValue().entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * multiplier, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static void index(Index index, Product product, String collectionName) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(terms, collectionName, COLLECTION_WEIGHT);
+        addTerms(terms, product.getName(), NAME_WEIGHT);
+        if (terms.isEmpty()) {
+            return;
+        }
+        index.documents.put(product.getId(), terms);
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            index.postings.computeIfAbsent(term.getKey(), k -> new ConcurrentHashMap<>())
+                    .put(product.getId(), term.getValue());
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Bỏ dấu tiếng Việt: "Đường Phố" -> "duong pho"
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+}
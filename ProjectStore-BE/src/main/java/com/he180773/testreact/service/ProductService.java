@@ -4,15 +4,22 @@ package com.he180773.testreact.service;
 import com.he180773.testreact.entity.Collection;
 import com.he180773.testreact.entity.Product;
 import com.he180773.testreact.entity.Size;
+import com.he180773.testreact.event.CatalogChangedEvent;
 import com.he180773.testreact.repository.CollectionRepository;
 import com.he180773.testreact.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,18 +27,108 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final CollectionRepository collectionRepository;
+    private final ProductSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, CollectionRepository collectionRepository) {
+    private final AtomicReference<CatalogSnapshot> catalog = new AtomicReference<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    // Tên bộ sưu tập đã dùng để dựng chỉ mục tìm kiếm lần gần nhất; chỉ truy cập khi giữ khóa catalog
+    private Map<Long, String> indexedCollectionNames = Map.of();
+
+    public ProductService(ProductRepository productRepository, CollectionRepository collectionRepository,
+                          ProductSearchIndex searchIndex, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.collectionRepository = collectionRepository;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Product> findAllByCategory(String category) {
-        return productRepository.findAllByCategoryAndInStock(category);
+        return getCatalog().getInStockByCategory(category);
     }
 
     public List<Product> findAll() {
-        return productRepository.findAllInStock();
+        return getCatalog().getInStock();
+    }
+
+    public CatalogSnapshot getCatalog() {
+        CatalogSnapshot snapshot = catalog.get();
+        if (snapshot == null) {
+            synchronized (catalog) {
+                snapshot = catalog.get();
+                if (snapshot == null) {
+                    snapshot = rebuildCatalog();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    // Dựng lại toàn bộ snapshot, đồng thời chạy định kỳ để bắt các thay đổi không đi qua service này.
+    // Nếu nội dung không đổi thì giữ snapshot cũ: version (và ETag) chỉ tăng khi catalog thật sự thay đổi
+    @Scheduled(fixedDelay = 300000, initialDelay = 300000)
+    public CatalogSnapshot rebuildCatalog() {
+        synchronized (catalog) {
+            CatalogSnapshot current = catalog.get();
+            CatalogSnapshot snapshot = CatalogSnapshot.build(catalogVersion.get() + 1, productRepository.findAll());
+            Map<Long, String> collectionNames = collectionRepository.findAll().stream()
+                    .collect(Collectors.toMap(Collection::getId, c -> c.getName() != null ? c.getName() : ""));
+            if (current != null && current.hasSameContent(snapshot) && collectionNames.equals(indexedCollectionNames)) {
+                return current;
+            }
+            catalogVersion.incrementAndGet();
+            searchIndex.rebuild(snapshot.getAllProducts(), collectionNames);
+            indexedCollectionNames = collectionNames;
+            catalog.set(snapshot);
+            eventPublisher.publishEvent(new CatalogChangedEvent(null, snapshot.getVersion()));
+            return snapshot;
+        }
+    }
+
+    // Gọi sau mỗi lần ghi product/variant (giá, số lượng, ...) để vá snapshot
+    public void onProductChanged(Long productId) {
+        Product product = productRepository.findById(productId).orElse(null);
+        synchronized (catalog) {
+            CatalogSnapshot current = catalog.get();
+            if (current == null) {
+                eventPublisher.publishEvent(new CatalogChangedEvent(productId, catalogVersion.get()));
+                return; // chưa có snapshot, lần đọc đầu tiên sẽ dựng từ DB
+            }
+            if (product != null) {
+                catalog.set(current.withProduct(catalogVersion.incrementAndGet(), product));
+                searchIndex.update(product, product.getCollectionId() != null
+                        ? collectionRepository.findById(product.getCollectionId()).map(Collection::getName).orElse(null)
+                        : null);
+            } else {
+                catalog.set(current.withoutProduct(catalogVersion.incrementAndGet(), productId));
+                searchIndex.remove(productId);
+            }
+            eventPublisher.publishEvent(new CatalogChangedEvent(productId, catalogVersion.get()));
+        }
+    }
+
+    public void onProductDeleted(Long productId) {
+        synchronized (catalog) {
+            CatalogSnapshot current = catalog.get();
+            if (current != null) {
+                catalog.set(current.withoutProduct(catalogVersion.incrementAndGet(), productId));
+            }
+            searchIndex.remove(productId);
+            eventPublisher.publishEvent(new CatalogChangedEvent(productId, catalogVersion.get()));
+        }
+    }
+
+    // Tìm kiếm trên chỉ mục trong bộ nhớ, không query DB
+    public List<Product> search(String query, int limit) {
+        CatalogSnapshot snapshot = getCatalog();
+        List<Product> result = new ArrayList<>();
+        for (Long id : searchIndex.search(query, limit)) {
+            Product product = snapshot.getProduct(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
     }
 
     public List<Product> findAllByCollection(String collection) {
@@ -51,11 +148,6 @@ public class ProductService {
         return products;
     }
 
-    public Page<Product> getNewArrivalsSorted(Pageable pageable,String name, Integer minPrice, Integer maxPrice) {
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        return productRepository.findNewArrivalsSorted(thirtyDaysAgo,name,minPrice,maxPrice,pageable);
-    }
-
     public List<Product> getNewArrivals() {
         LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
         return productRepository.findNewArrivals(thirtyDaysAgo);
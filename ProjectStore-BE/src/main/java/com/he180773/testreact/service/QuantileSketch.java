@@ -0,0 +1,133 @@
+package com.he180773.testreact.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Sketch phân vị cho giá trị dương (giá trị đơn), sai số tương đối 1%: mỗi giá trị được đếm vào bucket
+ * ceil(log_gamma(v)), nên khoảng 1..10^9 chỉ cần ~1000 bucket. Gộp hai sketch = cộng count từng bucket,
+ * kết quả giống hệt như khi thêm tất cả giá trị vào một sketch.
+ */
+public final class QuantileSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final byte FORMAT = 1;
+
+    // counts[i] là số giá trị của bucket offset + i
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+
+    public void add(double value) {
+        count++;
+        if (value <= 0) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+        ensureRange(index, index);
+        counts[index - offset]++;
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        zeroCount += other.zeroCount;
+        if (other.counts.length == 0) {
+            return;
+        }
+        ensureRange(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // q trong [0, 1]; trả về 0 nếu sketch rỗng
+    public double quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = Math.max(0, Math.min(1, q)) * (count - 1);
+        long cumulative = zeroCount;
+        if (rank < cumulative) {
+            return 0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative > rank) {
+                return 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, offset + counts.length - 1) / (GAMMA + 1);
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.counts = counts.clone();
+        copy.offset = offset;
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        return copy;
+    }
+
+    private void ensureRange(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            counts = new long[maxIndex - minIndex + 1];
+            offset = minIndex;
+            return;
+        }
+        int newMin = Math.min(minIndex, offset);
+        int newMax = Math.max(maxIndex, offset + counts.length - 1);
+        if (newMin == offset && newMax == offset + counts.length - 1) {
+            return;
+        }
+        long[] grown = new long[newMax - newMin + 1];
+        System.arraycopy(counts, 0, grown, offset - newMin, counts.length);
+        counts = grown;
+        offset = newMin;
+    }
+
+    // [format][count][zeroCount][offset][số bucket][count từng bucket], tất cả là varint
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + counts.length);
+        out.write(FORMAT);
+        SketchCodec.writeVarLong(out, count);
+        SketchCodec.writeVarLong(out, zeroCount);
+        SketchCodec.writeZigZag(out, offset);
+        SketchCodec.writeVarLong(out, counts.length);
+        for (long bucketCount : counts) {
+            SketchCodec.writeVarLong(out, bucketCount);
+        }
+        return out.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte format = in.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Định dạng QuantileSketch không hợp lệ: " + format);
+        }
+        sketch.count = SketchCodec.readVarLong(in);
+        sketch.zeroCount = SketchCodec.readVarLong(in);
+        sketch.offset = SketchCodec.readZigZag(in);
+        sketch.counts = new long[(int) SketchCodec.readVarLong(in)];
+        for (int i = 0; i < sketch.counts.length; i++) {
+            sketch.counts[i] = SketchCodec.readVarLong(in);
+        }
+        return sketch;
+    }
+}
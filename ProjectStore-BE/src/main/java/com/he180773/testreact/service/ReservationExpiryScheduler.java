@@ -0,0 +1,39 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Component
+public class ReservationExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationExpiryScheduler.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final StockReservationRepository stockReservationRepository;
+    private final OrderService orderService;
+
+    public ReservationExpiryScheduler(StockReservationRepository stockReservationRepository, OrderService orderService) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.orderService = orderService;
+    }
+
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000) // mỗi phút
+    public void releaseExpiredHolds() {
+        List<Long> orderIds = stockReservationRepository.findOrderIdsWithExpiredHolds(
+                LocalDateTime.now(), PageRequest.of(0, BATCH_SIZE));
+        for (Long orderId : orderIds) {
+            try {
+                orderService.expireReservation(orderId);
+            } catch (RuntimeException e) {
+                logger.warn("Could not expire reservation of order {}", orderId, e);
+            }
+        }
+    }
+}
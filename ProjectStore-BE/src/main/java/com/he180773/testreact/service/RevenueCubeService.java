@@ -0,0 +1,283 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.RevenueCubeQuery;
+import com.he180773.testreact.dto.RevenueSliceDTO;
+import com.he180773.testreact.entity.OrderItem;
+import com.he180773.testreact.entity.RevenueCube;
+import com.he180773.testreact.entity.RevenueCubeId;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.OrderRepository;
+import com.he180773.testreact.repository.RevenueCubeRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Cube doanh thu theo (ngày, trạng thái, sản phẩm, phương thức thanh toán), kèm danh mục/bộ sưu tập của sản phẩm.
+ * Khi đơn được đặt hoặc đổi trạng thái, các dòng đơn của nó được quy thành delta (trừ ô trạng thái cũ, cộng ô mới);
+ * delta được xếp hàng sau khi transaction của đơn commit và được một luồng duy nhất gộp lại, ghi xuống theo lô mỗi
+ * vài giây. Nhờ chỉ có một luồng ghi, việc tạo ô mới không tranh nhau INSERT, và ô nóng (sản phẩm bán chạy hôm nay)
+ * chỉ bị UPDATE một lần mỗi lô. Delta đang chờ bị mất nếu tiến trình chết đột ngột; rebuild() dựng lại từ dòng đơn.
+ */
+@Service
+public class RevenueCubeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueCubeService.class);
+
+    private static final Comparator<RevenueCubeId> KEY_ORDER = Comparator.comparing(RevenueCubeId::getRevenueDate)
+            .thenComparing(RevenueCubeId::getStatus)
+            .thenComparing(RevenueCubeId::getProductId)
+            .thenComparing(RevenueCubeId::getPaymentMethod);
+
+    private static final class Delta {
+        private final String category;
+        private final Long collectionId;
+        private final String productName;
+        private long quantity;
+        private long revenue;
+
+        private Delta(String category, Long collectionId, String productName) {
+            this.category = category;
+            this.collectionId = collectionId;
+            this.productName = productName;
+        }
+
+        private void add(long quantity, long revenue) {
+            this.quantity += quantity;
+            this.revenue += revenue;
+        }
+    }
+
+    // Delta của một đơn; orderId null là phần đã gộp từ một lần flush lỗi, trả lại hàng đợi
+    private record OrderDeltas(Long orderId, Map<RevenueCubeId, Delta> deltas) { }
+
+    private final RevenueCubeRepository revenueCubeRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // Delta của các transaction đã commit, chờ flush()
+    private final Queue<OrderDeltas> pending = new ConcurrentLinkedQueue<>();
+
+    public RevenueCubeService(RevenueCubeRepository revenueCubeRepository, OrderItemRepository orderItemRepository,
+                              OrderRepository orderRepository, EntityManager entityManager,
+                              TransactionTemplate transactionTemplate) {
+        this.revenueCubeRepository = revenueCubeRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<RevenueCubeId, Delta> deltas = new HashMap<>();
+        collect(event, orderItemRepository.findByOrderId(event.getOrderId()), deltas);
+        enqueue(List.of(new OrderDeltas(event.getOrderId(), deltas)));
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        List<Long> orderIds = event.getTransitions().stream().map(OrderStatusChangedEvent::getOrderId).toList();
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, List<OrderItem>> itemsByOrder = orderItemRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+        // Giữ delta theo từng đơn để rebuild() biết delta nào đã nằm trong lần quét
+        List<OrderDeltas> batches = new ArrayList<>(event.getTransitions().size());
+        for (OrderStatusChangedEvent transition : event.getTransitions()) {
+            Map<RevenueCubeId, Delta> deltas = new HashMap<>();
+            collect(transition, itemsByOrder.getOrDefault(transition.getOrderId(), List.of()), deltas);
+            batches.add(new OrderDeltas(transition.getOrderId(), deltas));
+        }
+        enqueue(batches);
+    }
+
+    private void collect(OrderStatusChangedEvent event, List<OrderItem> items, Map<RevenueCubeId, Delta> deltas) {
+        if (event.getOrderDate() == null) {
+            return;
+        }
+        LocalDate day = event.getOrderDate().toLocalDate();
+        String paymentMethod = event.getPaymentMethod() != null ? event.getPaymentMethod() : "unknown";
+        for (OrderItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null) {
+                continue; // dòng cũ chưa có ảnh chụp sản phẩm
+            }
+            long quantity = item.getQuantity();
+            Integer price = item.getPrice() != null ? item.getPrice() : item.getUnitPrice();
+            long revenue = quantity * (price != null ? price : 0);
+            if (event.getFromStatus() != null) {
+                delta(deltas, new RevenueCubeId(day, event.getFromStatus(), item.getProductId(), paymentMethod), item)
+                        .add(-quantity, -revenue);
+            }
+            delta(deltas, new RevenueCubeId(day, event.getToStatus(), item.getProductId(), paymentMethod), item)
+                    .add(quantity, revenue);
+        }
+    }
+
+    private Delta delta(Map<RevenueCubeId, Delta> deltas, RevenueCubeId key, OrderItem item) {
+        return deltas.computeIfAbsent(key, k -> new Delta(item.getCategory(), item.getCollectionId(), item.getProductName()));
+    }
+
+    private void enqueue(List<OrderDeltas> batches) {
+        List<OrderDeltas> nonEmpty = batches.stream().filter(batch -> !batch.deltas().isEmpty()).toList();
+        if (nonEmpty.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.addAll(nonEmpty);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.addAll(nonEmpty);
+            }
+        });
+    }
+
+    // Gộp mọi delta đang chờ và ghi trong một transaction, theo thứ tự khóa
+    @Scheduled(fixedDelay = 2000, initialDelay = 2000)
+    public synchronized void flush() {
+        Map<RevenueCubeId, Delta> merged = new TreeMap<>(KEY_ORDER);
+        OrderDeltas batch;
+        while ((batch = pending.poll()) != null) {
+            batch.deltas().forEach((key, delta) -> merged
+                    .computeIfAbsent(key, k -> new Delta(delta.category, delta.collectionId, delta.productName))
+                    .add(delta.quantity, delta.revenue));
+        }
+        merged.values().removeIf(delta -> delta.quantity == 0 && delta.revenue == 0);
+        if (merged.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<RevenueCube> created = new ArrayList<>();
+                merged.forEach((key, delta) -> {
+                    if (revenueCubeRepository.addDelta(key.getRevenueDate(), key.getStatus(), key.getProductId(),
+                            key.getPaymentMethod(), delta.quantity, delta.revenue) == 0) {
+                        created.add(new RevenueCube(key, delta.category, delta.collectionId, delta.productName,
+                                delta.quantity, delta.revenue));
+                    }
+                });
+                revenueCubeRepository.saveAll(created);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Revenue cube flush failed, will retry", e);
+            pending.add(new OrderDeltas(null, merged));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (revenueCubeRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ cube từ ảnh chụp trên dòng đơn bằng một câu GROUP BY, chỉ tới id đơn lớn nhất lấy lúc bắt đầu.
+     * Sau khi ghi xong, bỏ các delta đang chờ của đơn có id không lớn hơn mốc đó (đã nằm trong GROUP BY) và giữ
+     * delta của đơn mới hơn; delta đến sau đó thuộc các transaction commit sau lần quét nên vẫn được flush.
+     * Đơn cũ đổi trạng thái đúng lúc câu GROUP BY đang chạy vẫn có thể lệch; chạy lại để sửa.
+     */
+    public synchronized int rebuild() {
+        Long maxId = orderRepository.findMaxId();
+        long highWater = maxId != null ? maxId : 0L;
+        Integer rows = transactionTemplate.execute(status -> {
+            revenueCubeRepository.deleteAllRows();
+            List<RevenueCube> cells = new ArrayList<>();
+            for (Object[] row : orderItemRepository.sumRevenueCube(highWater)) {
+                RevenueCubeId key = new RevenueCubeId((LocalDate) row[0], (String) row[1], (Long) row[2], (String) row[3]);
+                cells.add(new RevenueCube(key, (String) row[4], (Long) row[5], (String) row[6],
+                        ((Number) row[7]).longValue(), ((Number) row[8]).longValue()));
+            }
+            revenueCubeRepository.saveAll(cells);
+            return cells.size();
+        });
+        pending.removeIf(batch -> batch.orderId() == null || batch.orderId() <= highWater);
+        logger.info("Rebuilt revenue cube: {} cells", rows);
+        return rows != null ? rows : 0;
+    }
+
+    // Gom cube theo một chiều, lọc theo các chiều còn lại; sắp theo doanh thu giảm dần (theo ngày tăng dần với chiều day)
+    public List<RevenueSliceDTO> slice(RevenueCubeQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+        Root<RevenueCube> c = cq.from(RevenueCube.class);
+        Path<RevenueCubeId> id = c.get("id");
+
+        Expression<?> key = switch (query.getDimension()) {
+            case RevenueCubeQuery.CATEGORY -> c.get("category");
+            case RevenueCubeQuery.COLLECTION -> c.get("collectionId");
+            case RevenueCubeQuery.PRODUCT -> id.get("productId");
+            case RevenueCubeQuery.PAYMENT_METHOD -> id.get("paymentMethod");
+            default -> id.get("revenueDate");
+        };
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getStatus() != null) {
+            predicates.add(cb.equal(id.get("status"), query.getStatus()));
+        }
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(id.get("revenueDate"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThan(id.get("revenueDate"), query.getTo()));
+        }
+        if (query.getCategory() != null) {
+            predicates.add(cb.equal(c.get("category"), query.getCategory()));
+        }
+        if (query.getCollectionId() != null) {
+            predicates.add(cb.equal(c.get("collectionId"), query.getCollectionId()));
+        }
+        if (query.getProductId() != null) {
+            predicates.add(cb.equal(id.get("productId"), query.getProductId()));
+        }
+        if (query.getPaymentMethod() != null) {
+            predicates.add(cb.equal(id.get("paymentMethod"), query.getPaymentMethod()));
+        }
+
+        Expression<Long> revenue = cb.sum(c.get("revenue"));
+        cq.multiselect(key, cb.greatest(c.<String>get("productName")), cb.sum(c.get("quantity")), revenue)
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(key)
+                .orderBy(RevenueCubeQuery.DAY.equals(query.getDimension()) ? cb.asc(key) : cb.desc(revenue));
+
+        List<RevenueSliceDTO> result = new ArrayList<>();
+        for (Object[] row : entityManager.createQuery(cq).getResultList()) {
+            long quantity = row[2] != null ? ((Number) row[2]).longValue() : 0;
+            long total = row[3] != null ? ((Number) row[3]).longValue() : 0;
+            if (quantity == 0 && total == 0) {
+                continue; // ô đã bị trừ hết (đơn chuyển sang trạng thái khác)
+            }
+            String keyValue = row[0] != null ? row[0].toString() : null;
+            String label = RevenueCubeQuery.PRODUCT.equals(query.getDimension()) ? (String) row[1] : keyValue;
+            result.add(new RevenueSliceDTO(keyValue, label, quantity, total));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
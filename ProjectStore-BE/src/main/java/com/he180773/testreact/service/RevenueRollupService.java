@@ -0,0 +1,201 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.DailyRevenue;
+import com.he180773.testreact.entity.DailyRevenueId;
+import com.he180773.testreact.entity.OrderStatus;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.repository.DailyRevenueRepository;
+import com.he180773.testreact.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bảng DailyRevenue: số đơn và doanh thu theo (ngày đặt, trạng thái). Mỗi lần đơn được đặt hoặc đổi trạng thái,
+ * listener tính delta (trừ ở dòng trạng thái cũ, cộng vào dòng trạng thái mới) và xếp hàng sau khi transaction
+ * của đơn commit; một luồng duy nhất gộp các delta và ghi xuống theo lô mỗi vài giây, nên checkout không phải
+ * khóa dòng (hôm nay, PENDING) và dòng nóng chỉ bị UPDATE một lần mỗi lô. Báo cáo doanh thu chỉ đọc vài trăm dòng
+ * tổng hợp thay vì toàn bộ lịch sử đơn, đổi lại trễ tối đa một chu kỳ flush. Delta đang chờ bị mất nếu tiến trình
+ * chết đột ngột; rebuild() dựng lại từ Order.
+ */
+@Service
+public class RevenueRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    private static final List<String> STATUSES = List.of(OrderStatus.PENDING, OrderStatus.CONFIRMED,
+            OrderStatus.SHIPPING, OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    // Cập nhật theo thứ tự (ngày, trạng thái) để hai transaction cùng chạm nhiều dòng không deadlock
+    private static final Comparator<DailyRevenueId> KEY_ORDER = Comparator.comparing(DailyRevenueId::getRevenueDate)
+            .thenComparing(DailyRevenueId::getStatus);
+
+    private final DailyRevenueRepository dailyRevenueRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Delta của một đơn; orderId null là phần đã gộp từ một lần flush lỗi, trả lại hàng đợi
+    private record OrderDeltas(Long orderId, Map<DailyRevenueId, long[]> deltas) { }
+
+    // Delta của các transaction đã commit, chờ flush()
+    private final Queue<OrderDeltas> pending = new ConcurrentLinkedQueue<>();
+
+    public RevenueRollupService(DailyRevenueRepository dailyRevenueRepository, OrderRepository orderRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.dailyRevenueRepository = dailyRevenueRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<DailyRevenueId, long[]> deltas = new TreeMap<>(KEY_ORDER);
+        collect(event, deltas);
+        enqueue(List.of(new OrderDeltas(event.getOrderId(), deltas)));
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        // Giữ delta theo từng đơn để rebuild() biết delta nào đã nằm trong lần quét
+        List<OrderDeltas> batches = new ArrayList<>(event.getTransitions().size());
+        for (OrderStatusChangedEvent transition : event.getTransitions()) {
+            Map<DailyRevenueId, long[]> deltas = new TreeMap<>(KEY_ORDER);
+            collect(transition, deltas);
+            batches.add(new OrderDeltas(transition.getOrderId(), deltas));
+        }
+        enqueue(batches);
+    }
+
+    private void collect(OrderStatusChangedEvent event, Map<DailyRevenueId, long[]> deltas) {
+        if (event.getOrderDate() == null) {
+            return;
+        }
+        LocalDate day = event.getOrderDate().toLocalDate();
+        long amount = event.getTotalPrice() != null ? event.getTotalPrice() : 0L;
+        if (event.getFromStatus() != null) {
+            long[] from = deltas.computeIfAbsent(new DailyRevenueId(day, event.getFromStatus()), key -> new long[2]);
+            from[0]--;
+            from[1] -= amount;
+        }
+        long[] to = deltas.computeIfAbsent(new DailyRevenueId(day, event.getToStatus()), key -> new long[2]);
+        to[0]++;
+        to[1] += amount;
+    }
+
+    // Chỉ xếp hàng khi transaction của đơn commit; đơn bị rollback không để lại delta
+    private void enqueue(List<OrderDeltas> batches) {
+        List<OrderDeltas> nonEmpty = batches.stream().filter(batch -> !batch.deltas().isEmpty()).toList();
+        if (nonEmpty.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.addAll(nonEmpty);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.addAll(nonEmpty);
+            }
+        });
+    }
+
+    // Gộp mọi delta đang chờ và ghi trong một transaction, theo thứ tự khóa
+    @Scheduled(fixedDelay = 2000, initialDelay = 2000)
+    public synchronized void flush() {
+        Map<DailyRevenueId, long[]> merged = new TreeMap<>(KEY_ORDER);
+        OrderDeltas batch;
+        while ((batch = pending.poll()) != null) {
+            batch.deltas().forEach((key, delta) -> {
+                long[] total = merged.computeIfAbsent(key, k -> new long[2]);
+                total[0] += delta[0];
+                total[1] += delta[1];
+            });
+        }
+        merged.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+        if (merged.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<DailyRevenue> created = new ArrayList<>();
+                merged.forEach((key, delta) -> {
+                    if (dailyRevenueRepository.addDelta(key.getRevenueDate(), key.getStatus(), delta[0], delta[1]) == 0) {
+                        // Ngày chưa có dòng (đơn có ngày đặt cũ/tương lai): hiếm, tạo mới
+                        created.add(new DailyRevenue(key.getRevenueDate(), key.getStatus(), delta[0], delta[1]));
+                    }
+                });
+                dailyRevenueRepository.saveAll(created);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Daily revenue flush failed, will retry", e);
+            pending.add(new OrderDeltas(null, merged));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Lần đầu chạy (bảng trống): dựng từ các đơn hiện có, rồi tạo sẵn dòng cho hôm nay và ngày mai
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (dailyRevenueRepository.count() == 0) {
+            rebuild();
+        }
+        ensureUpcomingRows();
+    }
+
+    /**
+     * Dựng lại toàn bộ bảng từ Order bằng một câu GROUP BY (ngày, trạng thái), chỉ tới id đơn lớn nhất lấy lúc bắt đầu.
+     * Sau khi commit, bỏ các delta đang chờ của đơn có id không lớn hơn mốc (đã nằm trong GROUP BY), giữ delta của
+     * đơn mới hơn. Transaction commit ngay trong khóa của flush() nên không lô nào chen vào giữa lúc dựng và lúc bỏ delta.
+     * Đơn cũ đổi trạng thái đúng lúc câu GROUP BY đang chạy vẫn có thể lệch; chạy lúc ít giao dịch hoặc chạy lại để sửa.
+     */
+    public synchronized int rebuild() {
+        Long maxId = orderRepository.findMaxId();
+        long highWater = maxId != null ? maxId : 0L;
+        Integer rows = transactionTemplate.execute(status -> {
+            dailyRevenueRepository.deleteAllRows();
+            List<DailyRevenue> entities = new ArrayList<>();
+            for (Object[] row : orderRepository.sumByDayAndStatus(highWater)) {
+                entities.add(new DailyRevenue((LocalDate) row[0], (String) row[1],
+                        ((Number) row[2]).longValue(), ((Number) row[3]).longValue()));
+            }
+            dailyRevenueRepository.saveAll(entities);
+            return entities.size();
+        });
+        pending.removeIf(batch -> batch.orderId() == null || batch.orderId() <= highWater);
+        logger.info("Rebuilt daily revenue rollup: {} rows", rows);
+        return rows != null ? rows : 0;
+    }
+
+    @Scheduled(cron = "0 0 * * * *") // mỗi giờ
+    @Transactional
+    public void ensureUpcomingRows() {
+        LocalDate today = LocalDate.now();
+        List<DailyRevenue> missing = new ArrayList<>();
+        for (LocalDate day : List.of(today, today.plusDays(1))) {
+            for (String status : STATUSES) {
+                if (!dailyRevenueRepository.existsById(new DailyRevenueId(day, status))) {
+                    missing.add(new DailyRevenue(day, status, 0L, 0L));
+                }
+            }
+        }
+        dailyRevenueRepository.saveAll(missing);
+    }
+}
@@ -1,83 +1,120 @@
 package com.he180773.testreact.service;
 
+import com.he180773.testreact.dto.RevenueBucket;
 import com.he180773.testreact.dto.RevenueDTO;
-import com.he180773.testreact.entity.Order;
+import com.he180773.testreact.dto.RevenuePointDTO;
+import com.he180773.testreact.entity.DailyRevenue;
+import com.he180773.testreact.repository.DailyRevenueRepository;
 import com.he180773.testreact.repository.OrderRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+/**
+ * Báo cáo doanh thu. Dashboard đọc bảng tổng hợp DailyRevenue (xem RevenueRollupService).
+ * getRevenueSeries gom nhóm thẳng trên bảng Order trong DB (khoảng order_date nửa mở, index (status, order_date))
+ * cho mọi trạng thái/khoảng thời gian, chỉ trả về một dòng projection cho mỗi ngày/tháng.
+ */
 @Service
 public class RevenueService {
 
+    private final DailyRevenueRepository dailyRevenueRepository;
     private final OrderRepository orderRepository;
 
-    public RevenueService(OrderRepository orderRepository) {
+    public RevenueService(DailyRevenueRepository dailyRevenueRepository, OrderRepository orderRepository) {
+        this.dailyRevenueRepository = dailyRevenueRepository;
         this.orderRepository = orderRepository;
     }
 
     public long getTotalRevenueFromShippedOrders() {
-        List<Order> shippedOrders = orderRepository.findByStatus("SHIPPED");
-
-        long total = 0;
-        for (Order order : shippedOrders) {
-            total += order.getTotalPrice();
-        }
-
-        return total;
+        return dailyRevenueRepository.sumRevenueByStatus("SHIPPED");
     }
 
     public List<RevenueDTO> getRevenueByDay() {
-        List<Order> shippedOrders = orderRepository.findByStatus("SHIPPED");
+        return toDTOs(dailyRevenueRepository.findByStatus("SHIPPED"), null, null);
+    }
 
-        Map<LocalDate, Long> revenueByDay = new TreeMap<>();
-        for (Order order : shippedOrders) {
-            LocalDate date = order.getOrderDate().toLocalDate();
-            revenueByDay.put(date,
-                    revenueByDay.getOrDefault(date, 0L) + order.getTotalPrice()
-            );
+    public List<RevenueDTO> getRevenueFiltered(Integer year, Integer month, Integer day) {
+        List<DailyRevenue> rows;
+        if (year != null) {
+            LocalDate[] range = toRange(year, month, day);
+            if (range == null) {
+                return List.of(); // ngày không tồn tại thì không có đơn nào khớp
+            }
+            rows = dailyRevenueRepository.findByStatusBetween("DELIVERED", range[0], range[1]);
+        } else {
+            rows = dailyRevenueRepository.findByStatus("DELIVERED");
         }
+        return toDTOs(rows, month, day);
+    }
 
-        // Convert to list of DTOs
-        List<RevenueDTO> result = new ArrayList<>();
-        for (Map.Entry<LocalDate, Long> entry : revenueByDay.entrySet()) {
-            result.add(new RevenueDTO(entry.getKey().toString(), entry.getValue()));
+    /**
+     * Doanh thu của một trạng thái trong [from, to), gom theo granularity = day | week | month.
+     * Ngày và tháng được GROUP BY trong DB; tuần (bắt đầu thứ Hai) được cộng từ các dòng theo ngày,
+     * vì số tuần của từng DB khác nhau ở ranh giới năm.
+     */
+    public List<RevenuePointDTO> getRevenueSeries(String status, LocalDate from, LocalDate to, String granularity) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        boolean monthly = "month".equals(granularity);
+        List<RevenueBucket> buckets = monthly
+                ? orderRepository.sumRevenueByMonth(status, from.atStartOfDay(), to.atStartOfDay())
+                : orderRepository.sumRevenueByDay(status, from.atStartOfDay(), to.atStartOfDay());
+
+        Map<LocalDate, long[]> totals = new TreeMap<>();
+        for (RevenueBucket bucket : buckets) {
+            LocalDate date = LocalDate.of(bucket.getBucketYear(), bucket.getBucketMonth(), bucket.getBucketDay());
+            if ("week".equals(granularity)) {
+                date = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+            long[] total = totals.computeIfAbsent(date, key -> new long[2]);
+            total[0] += bucket.getOrderCount();
+            total[1] += bucket.getRevenue();
         }
 
+        List<RevenuePointDTO> result = new ArrayList<>(totals.size());
+        totals.forEach((date, total) -> result.add(new RevenuePointDTO(
+                monthly ? YearMonth.from(date).toString() : date.toString(), total[0], total[1])));
         return result;
     }
 
-    public List<RevenueDTO> getRevenueFiltered(Integer year, Integer month, Integer day) {
-        List<Order> allOrders = orderRepository.findByStatus("DELIVERED");
-
-        // Tạo map để lưu doanh thu theo từng ngày
-        Map<LocalDate, Long> revenueMap = new TreeMap<>();
-
-        for (Order order : allOrders) {
-            LocalDate date = order.getOrderDate().toLocalDate();
-
-            // Bỏ qua đơn nếu không khớp điều kiện lọc
-            if (year != null && date.getYear() != year) continue;
-            if (month != null && date.getMonthValue() != month) continue;
-            if (day != null && date.getDayOfMonth() != day) continue;
-
-            // Cộng dồn doanh thu theo ngày
-            revenueMap.put(date, revenueMap.getOrDefault(date, 0L) + order.getTotalPrice());
+    // Bộ lọc năm/tháng/ngày -> khoảng ngày nửa mở [from, to): cả năm, cả tháng hoặc đúng một ngày; null nếu ngày không hợp lệ
+    public LocalDate[] toRange(int year, Integer month, Integer day) {
+        try {
+            if (month == null) {
+                LocalDate from = LocalDate.of(year, 1, 1);
+                return new LocalDate[]{from, from.plusYears(1)};
+            }
+            if (day == null) {
+                LocalDate from = LocalDate.of(year, month, 1);
+                return new LocalDate[]{from, from.plusMonths(1)};
+            }
+            LocalDate from = LocalDate.of(year, month, day);
+            return new LocalDate[]{from, from.plusDays(1)};
+        } catch (DateTimeException e) {
+            return null;
         }
+    }
 
-        // Chuyển map thành list DTO
+    // Bỏ dòng không khớp tháng/ngày (khi lọc không kèm năm) và dòng không còn đơn nào
+    private List<RevenueDTO> toDTOs(List<DailyRevenue> rows, Integer month, Integer day) {
         List<RevenueDTO> result = new ArrayList<>();
-        for (Map.Entry<LocalDate, Long> entry : revenueMap.entrySet()) {
-            String dateStr = entry.getKey().toString(); // yyyy-MM-dd,zzzzzzzzzzzzzzzzzzzzzzzzzz
-            long revenue = entry.getValue();
-            result.add(new RevenueDTO(dateStr, revenue));
+        for (DailyRevenue row : rows) {
+            LocalDate date = row.getId().getRevenueDate();
+            if (month != null && date.getMonthValue() != month) continue;
+            if (day != null && date.getDayOfMonth() != day) continue;
+            if (row.getOrderCount() <= 0) continue;
+            result.add(new RevenueDTO(date.toString(), row.getRevenue())); // yyyy-MM-dd
         }
-
         return result;
     }
-
 }
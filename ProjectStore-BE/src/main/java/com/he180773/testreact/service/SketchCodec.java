@@ -0,0 +1,45 @@
+package com.he180773.testreact.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+// Mã hóa varint (LEB128) cho dạng lưu trữ gọn của các sketch
+final class SketchCodec {
+
+    private SketchCodec() {
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Varint quá dài");
+            }
+        }
+    }
+
+    static void writeZigZag(ByteArrayOutputStream out, int value) {
+        // Coi kết quả zigzag là số không dấu 32 bit, nếu không số âm bị mở rộng dấu thành varint 10 byte
+        writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    static int readZigZag(ByteBuffer in) {
+        int raw = (int) readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
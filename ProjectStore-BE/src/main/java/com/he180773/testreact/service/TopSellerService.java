@@ -0,0 +1,241 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.Product;
+import com.he180773.testreact.entity.ProductSales;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.ProductSalesRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Bảng xếp hạng sản phẩm bán chạy, được cộng/trừ dần khi đơn chuyển vào hoặc ra khỏi DELIVERED
+ * thay vì quét lại toàn bộ đơn mỗi request. Số liệu được lưu ở bảng ProductSales và giữ trong bộ nhớ
+ * dưới dạng tập đã sắp xếp theo số lượng bán, nên đọc một trang chỉ duyệt đúng phần tử của trang đó.
+ */
+@Service
+public class TopSellerService {
+
+    public static final String SOLD_STATUS = "DELIVERED";
+
+    private record Rank(long productId, long sold) { }
+
+    private static final Comparator<Rank> BY_SOLD_DESC = Comparator.comparingLong(Rank::sold).reversed()
+            .thenComparing(Comparator.comparingLong(Rank::productId).reversed());
+
+    private final ProductSalesRepository productSalesRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductService productService;
+    private final TransactionTemplate requiresNew;
+
+    // Chỉ ghi trong khối synchronized; ranking đọc không khóa
+    private final Map<Long, Long> soldByProduct = new HashMap<>();
+    private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>(BY_SOLD_DESC);
+    private volatile boolean loaded;
+
+    public TopSellerService(ProductSalesRepository productSalesRepository, OrderItemRepository orderItemRepository,
+                            ProductService productService, PlatformTransactionManager transactionManager) {
+        this.productSalesRepository = productSalesRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productService = productService;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (!event.isPlacement()) {
+            onStatusChanged(event.getOrderId(), event.getFromStatus(), event.getToStatus());
+        }
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        event.getTransitions().forEach(this::onOrderStatusChanged);
+    }
+
+    @Transactional
+    public void onStatusChanged(Long orderId, String fromStatus, String toStatus) {
+        boolean wasSold = SOLD_STATUS.equals(fromStatus);
+        boolean isSold = SOLD_STATUS.equals(toStatus);
+        if (wasSold == isSold) {
+            return;
+        }
+        int sign = isSold ? 1 : -1;
+
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProductForOrder(orderId)) {
+            Long productId = (Long) row[0];
+            long delta = sign * ((Number) row[1]).longValue();
+            deltas.put(productId, delta);
+            if (productSalesRepository.addSoldQuantity(productId, delta) == 0 && delta > 0) {
+                // Sản phẩm chưa có dòng: tạo dòng 0 trong transaction riêng rồi cộng lại,
+                // để va chạm khóa chính với giao dịch khác không làm rollback việc giao đơn
+                ensureRow(productId);
+                productSalesRepository.addSoldQuantity(productId, delta);
+            }
+        }
+        runAfterCommit(() -> applyDeltas(deltas));
+    }
+
+    public Page<Product> getTopSellers(int page, int size, String name, Integer minPrice, Integer maxPrice, String sort) {
+        ensureLoaded();
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.max(size, 1));
+        CatalogSnapshot catalog = productService.getCatalog();
+        boolean filtered = name != null || minPrice != null || maxPrice != null;
+        Comparator<Product> order = comparatorFor(sort);
+
+        // Trường hợp phổ biến: xếp theo số lượng bán, không lọc -> chỉ duyệt tới hết trang cần lấy
+        if (!filtered && order == null) {
+            List<Product> content = new ArrayList<>(pageable.getPageSize());
+            long skip = pageable.getOffset();
+            for (Rank rank : ranking) {
+                Product product = catalog.getProduct(rank.productId());
+                if (product == null) continue;
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                content.add(product);
+                if (content.size() == pageable.getPageSize()) break;
+            }
+            return new PageImpl<>(content, pageable, ranking.size());
+        }
+
+        String needle = name != null ? name.toLowerCase() : null;
+        List<Product> matches = new ArrayList<>();
+        for (Rank rank : ranking) {
+            Product p = catalog.getProduct(rank.productId());
+            if (p == null) continue;
+            boolean matchName = needle == null || (p.getName() != null && p.getName().toLowerCase().contains(needle));
+            boolean matchPrice = (minPrice == null || (p.getPrice() != null && p.getPrice() >= minPrice))
+                    && (maxPrice == null || (p.getPrice() != null && p.getPrice() <= maxPrice));
+            if (matchName && matchPrice) {
+                matches.add(p);
+            }
+        }
+        if (order != null) {
+            matches.sort(order);
+        }
+        int start = (int) Math.min(pageable.getOffset(), matches.size());
+        int end = Math.min(start + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(new ArrayList<>(matches.subList(start, end)), pageable, matches.size());
+    }
+
+    private void ensureRow(Long productId) {
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                if (!productSalesRepository.existsById(productId)) {
+                    productSalesRepository.saveAndFlush(new ProductSales(productId, 0L));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Giao dịch khác vừa tạo dòng này trước, chỉ cần cộng vào
+        }
+    }
+
+    // Lần đầu chạy: dựng bảng tổng hợp từ các đơn DELIVERED hiện có bằng một câu GROUP BY.
+    // Chạy lúc khởi động chứ không đợi lần đọc đầu: nếu có đơn được giao trước lần đọc đó thì bảng không còn rỗng
+    // và các đơn DELIVERED cũ sẽ không bao giờ được tính
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (productSalesRepository.count() > 0) {
+            return;
+        }
+        List<ProductSales> rows = new ArrayList<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProductForStatus(SOLD_STATUS)) {
+            rows.add(new ProductSales((Long) row[0], ((Number) row[1]).longValue()));
+        }
+        productSalesRepository.saveAll(rows);
+        // Lần đọc nào lỡ nạp bảng rỗng trước đó sẽ nạp lại
+        runAfterCommit(() -> loaded = false);
+    }
+
+    // Đồng bộ lại bộ nhớ từ bảng tổng hợp, phòng khi có giao dịch bị rollback hoặc node khác ghi
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void reload() {
+        List<ProductSales> rows = productSalesRepository.findAll();
+        synchronized (this) {
+            soldByProduct.clear();
+            ranking.clear();
+            for (ProductSales row : rows) {
+                if (row.getSoldQuantity() != null && row.getSoldQuantity() > 0) {
+                    soldByProduct.put(row.getProductId(), row.getSoldQuantity());
+                    ranking.add(new Rank(row.getProductId(), row.getSoldQuantity()));
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private synchronized void applyDeltas(Map<Long, Long> deltas) {
+        if (!loaded) {
+            return; // chưa nạp, lần đọc đầu tiên sẽ lấy số liệu mới nhất từ DB
+        }
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            Long productId = entry.getKey();
+            long before = soldByProduct.getOrDefault(productId, 0L);
+            long after = Math.max(before + entry.getValue(), 0);
+            ranking.remove(new Rank(productId, before));
+            if (after > 0) {
+                soldByProduct.put(productId, after);
+                ranking.add(new Rank(productId, after));
+            } else {
+                soldByProduct.remove(productId);
+            }
+        }
+    }
+
+    private Comparator<Product> comparatorFor(String sort) {
+        if (sort == null) {
+            return null;
+        }
+        return switch (sort.toLowerCase()) {
+            case "price-asc" -> Comparator.comparing(Product::getPrice, Comparator.nullsLast(Comparator.naturalOrder()));
+            case "price-desc" -> Comparator.comparing(Product::getPrice, Comparator.nullsLast(Comparator.<Integer>reverseOrder()));
+            case "name-asc" -> Comparator.comparing(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "name-desc" -> Comparator.comparing(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER.reversed()));
+            default -> null;
+        };
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.UserOrderStatsDTO;
+import com.he180773.testreact.dto.UserOrderStatsDTO.StatusTotal;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.repository.OrderRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thống kê đơn theo trạng thái của từng user, tính bằng một câu GROUP BY và cache theo user.
+ * Cache bị xóa khi user đặt đơn mới hoặc một đơn của user đổi trạng thái (sau khi commit).
+ */
+@Service
+public class UserOrderStatsService {
+
+    private static final int MAX_CACHED_USERS = 5000;
+
+    private final OrderRepository orderRepository;
+    private final Map<Long, UserOrderStatsDTO> cache = new ConcurrentHashMap<>();
+    // Tăng mỗi lần có thay đổi; kết quả tính trong lúc có thay đổi chen vào sẽ không được cache
+    private final AtomicLong generation = new AtomicLong();
+    // Định danh của từng kết quả đã tính, dùng làm ETag
+    private final AtomicLong stamps = new AtomicLong();
+
+    public UserOrderStatsService(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public UserOrderStatsDTO getStats(Long userId) {
+        UserOrderStatsDTO cached = cache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long before = generation.get();
+        Map<String, StatusTotal> byStatus = new TreeMap<>();
+        for (Object[] row : orderRepository.sumByStatusForUser(userId)) {
+            if (row[0] == null) continue;
+            byStatus.put((String) row[0], new StatusTotal(((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        UserOrderStatsDTO stats = new UserOrderStatsDTO(userId, Collections.unmodifiableMap(byStatus),
+                stamps.incrementAndGet());
+        if (generation.get() == before) {
+            if (cache.size() >= MAX_CACHED_USERS) {
+                cache.clear();
+            }
+            cache.put(userId, stats);
+        }
+        return stats;
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        onOrderChanged(event.getUserId());
+    }
+
+    @EventListener
+    public void onOrdersTransitioned(OrdersTransitionedEvent event) {
+        event.getTransitions().stream()
+                .map(OrderStatusChangedEvent::getUserId)
+                .distinct()
+                .forEach(this::onOrderChanged);
+    }
+
+    public void onOrderChanged(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        cache.remove(userId);
+    }
+}
@@ -0,0 +1,62 @@
+-- Chạy một lần trước khi deploy bản dùng sequence cho OrderItem.
+-- Sequence phải bắt đầu sau id lớn nhất hiện có; allocationSize = 50 nên increment cũng phải là 50.
+
+-- PostgreSQL
+CREATE SEQUENCE IF NOT EXISTS order_item_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('order_item_seq', COALESCE((SELECT MAX(id) FROM "Orderitem"), 0) + 50, false);
+
+-- SQL Server: cột ID đang là IDENTITY nên không nhận id do Hibernate lấy từ sequence gửi xuống.
+-- IDENTITY không bỏ được bằng ALTER COLUMN -> dựng bảng mới không IDENTITY, chép dữ liệu, đổi tên rồi tạo sequence.
+-- Chạy bằng sqlcmd/SSMS (có GO). Nếu có khóa ngoại trỏ vào [Orderitem] thì phải drop trước và tạo lại sau bước 2.
+
+-- 1. Bổ sung các cột ảnh chụp nếu bảng cũ chưa có (xem order_item_snapshot.sql), để bước chép dữ liệu dùng chung một danh sách cột
+IF COL_LENGTH('Orderitem', 'product_id') IS NULL
+    ALTER TABLE [Orderitem] ADD
+        product_id BIGINT NULL,
+        product_name NVARCHAR(50) NULL,
+        category NVARCHAR(50) NULL,
+        collection_id BIGINT NULL,
+        color NVARCHAR(50) NULL,
+        size NVARCHAR(50) NULL,
+        image NVARCHAR(500) NULL,
+        unit_price INT NULL;
+GO
+
+-- 2. Dựng lại bảng trong một transaction; TABLOCKX giữ bảng cũ đến lúc commit nên không dòng nào bị ghi vào giữa chừng
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+CREATE TABLE [Orderitem_new] (
+    ID BIGINT NOT NULL CONSTRAINT pk_orderitem PRIMARY KEY,
+    order_id BIGINT NULL,
+    product_variant_id BIGINT NULL,
+    quantity INT NULL,
+    price INT NULL,
+    product_id BIGINT NULL,
+    product_name NVARCHAR(50) NULL,
+    category NVARCHAR(50) NULL,
+    collection_id BIGINT NULL,
+    color NVARCHAR(50) NULL,
+    size NVARCHAR(50) NULL,
+    image NVARCHAR(500) NULL,
+    unit_price INT NULL
+);
+
+INSERT INTO [Orderitem_new] (ID, order_id, product_variant_id, quantity, price, product_id, product_name,
+                             category, collection_id, color, size, image, unit_price)
+SELECT ID, order_id, product_variant_id, quantity, price, product_id, product_name,
+       category, collection_id, color, size, image, unit_price
+FROM [Orderitem] WITH (TABLOCKX, HOLDLOCK);
+
+DROP TABLE [Orderitem];
+EXEC sp_rename 'Orderitem_new', 'Orderitem';
+CREATE INDEX ix_order_item_order ON [Orderitem] (order_id);
+
+-- 3. Sequence bắt đầu sau id lớn nhất vừa chép (CREATE SEQUENCE không nhận biến nên phải dùng SQL động)
+DECLARE @start BIGINT = (SELECT ISNULL(MAX(ID), 0) + 50 FROM [Orderitem]);
+DECLARE @sql NVARCHAR(200) = N'CREATE SEQUENCE order_item_seq AS BIGINT START WITH '
+    + CAST(@start AS NVARCHAR(20)) + N' INCREMENT BY 50';
+EXEC sp_executesql @sql;
+
+COMMIT TRANSACTION;
+GO
@@ -0,0 +1,32 @@
+-- Chạy một lần sau khi deploy bản OrderItem có ảnh chụp sản phẩm (Hibernate tự thêm cột nếu ddl-auto=update).
+-- Điền ảnh chụp cho các dòng đơn cũ từ sản phẩm hiện tại; dòng mà variant/sản phẩm đã bị xóa giữ NULL
+-- và vẫn được đọc theo cách cũ (bị bỏ qua như trước).
+
+-- PostgreSQL
+UPDATE "Orderitem" oi
+SET product_id = v.product_id,
+    product_name = p.name,
+    category = p.category,
+    collection_id = p.collection_id,
+    color = v.color,
+    size = v.size,
+    image = v.primary_image,
+    unit_price = COALESCE(v.price, p.price)
+FROM "Productvariant" v
+JOIN "Product" p ON p.id = v.product_id
+WHERE v.id = oi.product_variant_id AND oi.product_name IS NULL;
+
+-- SQL Server
+-- UPDATE oi
+-- SET product_id = v.product_id,
+--     product_name = p.NAME,
+--     category = p.CATEGORY,
+--     collection_id = p.collection_id,
+--     color = v.COLOR,
+--     size = v.size,
+--     image = v.primary_image,
+--     unit_price = COALESCE(v.price, p.price)
+-- FROM [Orderitem] oi
+-- JOIN [Productvariant] v ON v.ID = oi.product_variant_id
+-- JOIN [Product] p ON p.ID = v.product_id
+-- WHERE oi.product_name IS NULL;
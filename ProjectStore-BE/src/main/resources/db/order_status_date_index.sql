@@ -0,0 +1,17 @@
+-- Index cho các query doanh thu: WHERE status = ? AND order_date >= ? AND order_date < ?
+-- (Hibernate tự tạo khi ddl-auto=update; chạy tay cho môi trường quản lý schema bằng script)
+-- Chỉ chạy phần ứng với DB đang dùng.
+
+-- PostgreSQL (CONCURRENTLY để không khóa bảng khi tạo; không chạy được trong transaction)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_order_status_date ON "Order" (status, order_date) INCLUDE (total_price);
+
+-- SQL Server (chạy bằng sqlcmd/SSMS). ONLINE = ON chỉ có ở bản Enterprise/Developer và Azure SQL,
+-- các bản khác tạo offline (khóa bảng trong lúc tạo, nên chạy ngoài giờ cao điểm)
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_order_status_date' AND object_id = OBJECT_ID('[Order]'))
+BEGIN
+    IF CAST(SERVERPROPERTY('EngineEdition') AS INT) IN (3, 5, 8)
+        CREATE INDEX ix_order_status_date ON [Order] (status, order_date) INCLUDE (total_price) WITH (ONLINE = ON);
+    ELSE
+        CREATE INDEX ix_order_status_date ON [Order] (status, order_date) INCLUDE (total_price);
+END
+GO
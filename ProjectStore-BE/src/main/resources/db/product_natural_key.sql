@@ -0,0 +1,19 @@
+-- Unique index theo khóa tự nhiên (name, category, collection_id) cho import catalog.
+-- (Hibernate tự tạo khi ddl-auto=update nếu bảng chưa có dòng trùng; chạy tay cho môi trường quản lý schema bằng script)
+-- Chỉ chạy phần ứng với DB đang dùng. Nếu câu kiểm tra trả về dòng nào thì phải gộp/đổi tên các sản phẩm đó trước.
+
+-- PostgreSQL 15+ (NULLS NOT DISTINCT để sản phẩm không có danh mục/bộ sưu tập cũng không bị trùng)
+SELECT name, category, collection_id, COUNT(*) FROM "Product"
+GROUP BY name, category, collection_id HAVING COUNT(*) > 1;
+DROP INDEX IF EXISTS ix_product_name_category;
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_product_natural_key ON "Product" (name, category, collection_id) NULLS NOT DISTINCT;
+
+-- SQL Server (chạy bằng sqlcmd/SSMS). NULL được coi là bằng nhau trong unique index, khớp với cách import so khóa
+SELECT name, category, collection_id, COUNT(*) FROM [Product]
+GROUP BY name, category, collection_id HAVING COUNT(*) > 1;
+GO
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_product_name_category' AND object_id = OBJECT_ID('[Product]'))
+    DROP INDEX ix_product_name_category ON [Product];
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ux_product_natural_key' AND object_id = OBJECT_ID('[Product]'))
+    CREATE UNIQUE INDEX ux_product_natural_key ON [Product] (name, category, collection_id);
+GO
@@ -0,0 +1,56 @@
+-- Benchmark query doanh thu trên bảng Order có vài triệu dòng (PostgreSQL). Chạy trên DB thử nghiệm, KHÔNG chạy trên production.
+--   psql -d <db_thu_nghiem> -v rows=3000000 -f revenue_benchmark.sql
+-- So sánh:
+--   (1) cách cũ: tải toàn bộ đơn DELIVERED rồi lọc/cộng trong Java (ở đây đo phần đọc dữ liệu)
+--   (2) GROUP BY theo ngày trong DB với hàm trên cột (không dùng được index theo khoảng)
+--   (3) GROUP BY theo ngày với khoảng order_date nửa mở (dùng ix_order_status_date)
+-- Chưa có số đo: script chưa được chạy trên dữ liệu cỡ production. Ghi lại thời gian (\timing) và
+-- EXPLAIN của từng truy vấn vào đây sau khi chạy.
+
+\set ON_ERROR_STOP on
+\timing on
+
+CREATE TABLE IF NOT EXISTS revenue_bench_order (LIKE "Order" INCLUDING DEFAULTS);
+TRUNCATE revenue_bench_order;
+
+-- Đơn trải đều trong 3 năm, 5 trạng thái
+INSERT INTO revenue_bench_order (id, user_id, payment_method, order_date, status, total_price, version)
+SELECT g,
+       1 + (g % 50000),
+       CASE WHEN g % 3 = 0 THEN 'wallet' ELSE 'cod' END,
+       TIMESTAMP '2023-01-01' + (random() * INTERVAL '1095 days'),
+       (ARRAY['PENDING', 'CONFIRMED', 'SHIPPING', 'DELIVERED', 'CANCELLED'])[1 + (g % 5)],
+       10000 + (g % 990000),
+       0
+FROM generate_series(1, :rows) AS g;
+
+CREATE INDEX IF NOT EXISTS ix_revenue_bench_status_date ON revenue_bench_order (status, order_date) INCLUDE (total_price);
+ANALYZE revenue_bench_order;
+
+-- (1) Cách cũ
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM revenue_bench_order WHERE status = 'DELIVERED';
+
+-- (2) Lọc bằng hàm trên cột: không sargable
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(order_date AS date), COUNT(*), SUM(total_price)
+FROM revenue_bench_order
+WHERE status = 'DELIVERED' AND EXTRACT(YEAR FROM order_date) = 2024 AND EXTRACT(MONTH FROM order_date) = 6
+GROUP BY CAST(order_date AS date);
+
+-- (3) Khoảng nửa mở: index range scan (status, order_date), chỉ đọc các dòng của tháng
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM order_date), EXTRACT(MONTH FROM order_date), EXTRACT(DAY FROM order_date),
+       COUNT(*), SUM(total_price)
+FROM revenue_bench_order
+WHERE status = 'DELIVERED' AND order_date >= TIMESTAMP '2024-06-01' AND order_date < TIMESTAMP '2024-07-01'
+GROUP BY EXTRACT(YEAR FROM order_date), EXTRACT(MONTH FROM order_date), EXTRACT(DAY FROM order_date);
+
+-- (3b) Cả năm theo tháng
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM order_date), EXTRACT(MONTH FROM order_date), COUNT(*), SUM(total_price)
+FROM revenue_bench_order
+WHERE status = 'DELIVERED' AND order_date >= TIMESTAMP '2024-01-01' AND order_date < TIMESTAMP '2025-01-01'
+GROUP BY EXTRACT(YEAR FROM order_date), EXTRACT(MONTH FROM order_date);
+
+DROP TABLE revenue_bench_order;
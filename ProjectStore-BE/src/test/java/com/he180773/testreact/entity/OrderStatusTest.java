@@ -0,0 +1,63 @@
+package com.he180773.testreact.entity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    private static final List<String> ALL = List.of(
+            OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.SHIPPING, OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    @ParameterizedTest(name = "{0} -> {1}: {2}")
+    @CsvSource({
+            "PENDING,   PENDING,   false",
+            "PENDING,   CONFIRMED, true",
+            "PENDING,   SHIPPING,  false",
+            "PENDING,   DELIVERED, false",
+            "PENDING,   CANCELLED, true",
+            "CONFIRMED, PENDING,   false",
+            "CONFIRMED, CONFIRMED, false",
+            "CONFIRMED, SHIPPING,  true",
+            "CONFIRMED, DELIVERED, false",
+            "CONFIRMED, CANCELLED, true",
+            "SHIPPING,  PENDING,   false",
+            "SHIPPING,  CONFIRMED, false",
+            "SHIPPING,  SHIPPING,  false",
+            "SHIPPING,  DELIVERED, true",
+            "SHIPPING,  CANCELLED, true",
+            "DELIVERED, PENDING,   false",
+            "DELIVERED, CONFIRMED, false",
+            "DELIVERED, SHIPPING,  false",
+            "DELIVERED, DELIVERED, false",
+            "DELIVERED, CANCELLED, false",
+            "CANCELLED, PENDING,   false",
+            "CANCELLED, CONFIRMED, false",
+            "CANCELLED, SHIPPING,  false",
+            "CANCELLED, DELIVERED, false",
+            "CANCELLED, CANCELLED, false"
+    })
+    void transitionTable(String from, String to, boolean allowed) {
+        assertThat(OrderStatus.canTransition(from, to)).isEqualTo(allowed);
+    }
+
+    @Test
+    void terminalStatesHaveNoExit() {
+        for (String to : ALL) {
+            assertThat(OrderStatus.canTransition(OrderStatus.DELIVERED, to)).isFalse();
+            assertThat(OrderStatus.canTransition(OrderStatus.CANCELLED, to)).isFalse();
+        }
+    }
+
+    @Test
+    void unknownOrNullStatusCannotTransition() {
+        assertThat(OrderStatus.canTransition(null, OrderStatus.CONFIRMED)).isFalse();
+        assertThat(OrderStatus.canTransition("UNKNOWN", OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.canTransition(OrderStatus.PENDING, null)).isFalse();
+        assertThat(OrderStatus.canTransition(OrderStatus.PENDING, "pending")).isFalse();
+    }
+}
@@ -0,0 +1,256 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.ImportJobDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogImportServiceTest {
+
+    private static final String CSV_HEADER = "name,category,collectionId,thumbnailImage,color,size,price,quantity,images\n";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ProductAggregateService productAggregateService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    // Bảng Product/Productvariant giả lập: khóa tự nhiên (name, category, collection_id) -> id
+    private final Map<List<Object>, Long> products = new LinkedHashMap<>();
+    private final List<Object[]> variants = new ArrayList<>();
+    private long nextId = 1;
+
+    private CatalogImportService catalogImportService;
+
+    @BeforeEach
+    void setUp() {
+        doReturn("\"").when(jdbcTemplate).execute(any(ConnectionCallback.class));
+        // Transaction rollback thì bảng trở về trạng thái trước đó (id đã cấp thì không dùng lại, như sequence)
+        lenient().doAnswer(inv -> {
+            Map<List<Object>, Long> productsBefore = new LinkedHashMap<>(products);
+            int variantsBefore = variants.size();
+            try {
+                return inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } catch (RuntimeException e) {
+                products.clear();
+                products.putAll(productsBefore);
+                variants.subList(variantsBefore, variants.size()).clear();
+                throw e;
+            }
+        }).when(transactionTemplate).execute(any());
+        lenient().doAnswer(inv -> {
+            String sql = inv.getArgument(0);
+            List<Object[]> rows = inv.getArgument(1);
+            for (Object[] row : rows) {
+                if (sql.startsWith("INSERT INTO \"Product\"")) {
+                    insertProduct(row);
+                } else {
+                    variants.add(row);
+                }
+            }
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        lenient().doAnswer(inv -> {
+            Object[] args = inv.getRawArguments();
+            RowCallbackHandler handler = (RowCallbackHandler) args[1];
+            List<Object> names = Arrays.asList((Object[]) args[2]);
+            for (Map.Entry<List<Object>, Long> product : products.entrySet()) {
+                if (names.contains(product.getKey().get(0))) {
+                    handler.processRow(row(product.getKey(), product.getValue()));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        catalogImportService = new CatalogImportService(jdbcTemplate, productAggregateService, transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogImportService.shutdown();
+    }
+
+    private void insertProduct(Object[] row) {
+        String name = (String) row[0];
+        // Cột NAME là NVARCHAR(50)
+        if (name.length() > 50) {
+            throw new DataIntegrityViolationException("String or binary data would be truncated");
+        }
+        if (products.putIfAbsent(Arrays.asList(row[0], row[1], row[5]), nextId) != null) {
+            throw new DuplicateKeyException("ux_product_natural_key");
+        }
+        nextId++;
+    }
+
+    private static List<Object> key(String name, String category, Long collectionId) {
+        return Arrays.asList(name, category, collectionId);
+    }
+
+    private static ResultSet row(List<Object> key, Long id) throws SQLException {
+        ResultSet rs = mock(ResultSet.class, withSettings().strictness(Strictness.LENIENT));
+        Long collectionId = (Long) key.get(2);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("name")).thenReturn((String) key.get(0));
+        when(rs.getString("category")).thenReturn((String) key.get(1));
+        when(rs.getLong("collection_id")).thenReturn(collectionId != null ? collectionId : 0L);
+        when(rs.wasNull()).thenReturn(collectionId == null);
+        return rs;
+    }
+
+    private ImportJobDTO importFile(String fileName, String content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, "text/plain",
+                content.getBytes(StandardCharsets.UTF_8));
+        ImportJobDTO job = catalogImportService.submit(file);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getFinishedAt() == null) {
+            assertThat(System.currentTimeMillis()).as("import %s chưa xong", job.getId()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    @Test
+    void csvGroupsConsecutiveRowsIntoProductsAndRejectsBadLines() throws Exception {
+        ImportJobDTO job = importFile("catalog.csv", CSV_HEADER
+                + "Áo thun,shirt,1,t.jpg,red,M,100,5,a.jpg|b.jpg\n"
+                + "Áo thun,shirt,1,t.jpg,blue,L,100,3,\n"
+                + "\"Quần, jean\",pants,,p.jpg,black,32,200,2,\n"
+                + "Váy,dress,2,v.jpg,white,S,abc,1,\n"
+                + "\n"
+                + "Áo thun,shirt,1,t.jpg,green,S,100,1,\n"
+                + "Mũ,hat,,h.jpg,red,M,-1,1,\n");
+
+        assertThat(job.getStatus()).isEqualTo("DONE");
+        assertThat(job.getLinesRead()).isEqualTo(7);
+        assertThat(job.getProductsCreated()).isEqualTo(2);
+        assertThat(job.getVariantsCreated()).isEqualTo(3);
+        // Áo thun xuất hiện lại sau một sản phẩm khác: trùng khóa tự nhiên trong cùng lô nên bị bỏ qua
+        assertThat(job.getProductsSkipped()).isEqualTo(1);
+        assertThat(job.getRejectedLines()).isEqualTo(2);
+        assertThat(job.getErrors()).hasSize(2);
+        assertThat(job.getErrors().get(0)).startsWith("Dòng 5: ");
+        assertThat(job.getErrors().get(1)).isEqualTo("Dòng 8: Giá và số lượng không được âm");
+
+        assertThat(products).containsOnlyKeys(key("Áo thun", "shirt", 1L), key("Quần, jean", "pants", null));
+        assertThat(variants).extracting(v -> v[0], v -> v[3], v -> v[6])
+                .containsExactly(
+                        tuple("red", 1L, "a.jpg"),
+                        tuple("blue", 1L, null),
+                        tuple("black", 2L, null));
+        verify(productAggregateService).recompute(Set.of(1L, 2L));
+    }
+
+    @Test
+    void reimportingTheSameFileSkipsExistingProducts() throws Exception {
+        String csv = CSV_HEADER
+                + "Áo thun,shirt,1,t.jpg,red,M,100,5,\n"
+                + " Quần ,pants,,p.jpg,black,32,200,2,\n";
+        importFile("catalog.csv", csv);
+
+        ImportJobDTO again = importFile("catalog.csv", csv);
+
+        assertThat(again.getStatus()).isEqualTo("DONE");
+        assertThat(again.getProductsCreated()).isZero();
+        assertThat(again.getProductsSkipped()).isEqualTo(2);
+        assertThat(products).hasSize(2);
+        assertThat(variants).hasSize(2);
+    }
+
+    @Test
+    void productFailingInTheDatabaseRejectsOnlyItsOwnLine() throws Exception {
+        ImportJobDTO job = importFile("catalog.csv", CSV_HEADER
+                + "Áo thun,shirt,1,t.jpg,red,M,100,5,\n"
+                + "x".repeat(60) + ",shirt,1,t.jpg,red,M,100,5,\n"
+                + "Mũ,hat,,h.jpg,red,M,50,1,\n");
+
+        assertThat(job.getStatus()).isEqualTo("DONE");
+        assertThat(job.getProductsCreated()).isEqualTo(2);
+        assertThat(job.getRejectedLines()).isEqualTo(1);
+        assertThat(job.getErrors()).singleElement().asString().startsWith("Dòng 3: ");
+        assertThat(products.keySet()).extracting(key -> key.get(0)).containsExactly("Áo thun", "Mũ");
+        assertThat(variants).hasSize(2);
+    }
+
+    @Test
+    void csvWithoutARequiredColumnFails() throws Exception {
+        ImportJobDTO job = importFile("catalog.csv", "name,category,color,size,quantity\nÁo thun,shirt,red,M,5\n");
+
+        assertThat(job.getStatus()).isEqualTo("FAILED");
+        assertThat(job.getErrors()).singleElement().asString().contains("Thiếu cột price");
+        assertThat(products).isEmpty();
+    }
+
+    @Test
+    void jsonLinesImportsOneProductPerLineAndRejectsInvalidLines() throws Exception {
+        ImportJobDTO job = importFile("catalog.jsonl", String.join("\n",
+                "{\"name\":\"Giày\",\"category\":\"shoes\",\"collectionId\":3,\"thumbnailImage\":\"g.jpg\","
+                        + "\"variants\":[{\"color\":\"black\",\"size\":\"42\",\"price\":500,\"quantity\":4,\"images\":[\"g1.jpg\",\"g2.jpg\"]},"
+                        + "{\"color\":\"white\",\"size\":\"41\",\"price\":500,\"quantity\":2}]}",
+                "{\"name\":\"Dép\",\"category\":\"shoes\",\"variants\":[]}",
+                "not json",
+                "{\"name\":\"Tất\",\"category\":\"socks\",\"variants\":[{\"color\":\"white\",\"size\":\"M\",\"price\":\"10\",\"quantity\":1}]}",
+                "{\"category\":\"hat\",\"variants\":[{\"color\":\"red\",\"size\":\"M\",\"price\":1,\"quantity\":1}]}",
+                "{\"name\":\"Nón\",\"category\":\"hat\",\"collectionId\":\"abc\",\"variants\":[{\"color\":\"red\",\"size\":\"M\",\"price\":1,\"quantity\":1}]}"));
+
+        assertThat(job.getStatus()).isEqualTo("DONE");
+        assertThat(job.getProductsCreated()).isEqualTo(1);
+        assertThat(job.getVariantsCreated()).isEqualTo(2);
+        assertThat(job.getRejectedLines()).isEqualTo(5);
+        assertThat(job.getErrors()).extracting(error -> error.substring(0, error.indexOf(':')))
+                .containsExactly("Dòng 2", "Dòng 3", "Dòng 4", "Dòng 5", "Dòng 6");
+        assertThat(job.getErrors().get(0)).endsWith("Sản phẩm không có variant");
+        assertThat(products).containsOnlyKeys(key("Giày", "shoes", 3L));
+        assertThat(variants).extracting(v -> v[0], v -> v[6])
+                .containsExactly(
+                        tuple("black", "g1.jpg"),
+                        tuple("white", null));
+        verify(productAggregateService).recompute(Set.of(1L));
+    }
+
+    @Test
+    void splitCsvHandlesQuotedCellsAndEscapedQuotes() {
+        assertThat(CatalogImportService.splitCsv("a,\"b,c\",\"d \"\"e\"\"\","))
+                .containsExactly("a", "b,c", "d \"e\"", "");
+    }
+
+    @Test
+    void splitCsvKeepsEmptyCells() {
+        assertThat(CatalogImportService.splitCsv(",,x")).containsExactly("", "", "x");
+    }
+}
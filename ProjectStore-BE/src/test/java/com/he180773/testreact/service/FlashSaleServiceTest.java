@@ -0,0 +1,185 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.ProductVariant;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FlashSaleServiceTest {
+
+    private static final Long VARIANT_ID = 5L;
+
+    @Mock
+    private ProductVariantRepository productVariantRepository;
+    @Mock
+    private ProductAggregateService productAggregateService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @TempDir
+    Path dir;
+
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = dir.resolve("flash-sale.journal");
+        ProductVariant variant = new ProductVariant();
+        variant.setId(VARIANT_ID);
+        variant.setQuantity(10);
+        when(productVariantRepository.findById(VARIANT_ID)).thenReturn(Optional.of(variant));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // stopTimeoutMillis = 0 để stop() không chờ các lần giữ hàng đang mở
+    private FlashSaleService newService() {
+        return new FlashSaleService(productVariantRepository, productAggregateService, transactionTemplate,
+                journalPath.toString(), 0);
+    }
+
+    private void runTransactionCallbacks() {
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private List<String> journalLines() throws IOException {
+        return Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void rolledBackHoldIsReturnedToTheCounterAndNotJournaled() throws IOException {
+        FlashSaleService service = newService();
+        service.start(VARIANT_ID);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(service.tryAcquire(VARIANT_ID, 3)).isTrue();
+        assertThat(service.getRemaining()).containsEntry(VARIANT_ID, 7);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(service.getRemaining()).containsEntry(VARIANT_ID, 10);
+        assertThat(journalLines()).containsExactly("S 5");
+    }
+
+    @Test
+    void committedHoldIsJournaledAndSyncedToTheDatabase() throws IOException {
+        runTransactionCallbacks();
+        FlashSaleService service = newService();
+        service.start(VARIANT_ID);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(service.tryAcquire(VARIANT_ID, 3)).isTrue();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(service.getRemaining()).containsEntry(VARIANT_ID, 7);
+        assertThat(journalLines()).containsExactly("S 5", "C 5 3");
+
+        service.sync();
+
+        verify(productVariantRepository).incrementQuantity(VARIANT_ID, -3);
+        // Không còn món nào nợ DB nên journal được thu gọn về các variant đang mở bán
+        assertThat(journalLines()).containsExactly("S 5");
+    }
+
+    @Test
+    void holdLargerThanTheCounterIsRejected() {
+        FlashSaleService service = newService();
+        service.start(VARIANT_ID);
+
+        assertThat(service.tryAcquire(VARIANT_ID, 11)).isFalse();
+        assertThat(service.getRemaining()).containsEntry(VARIANT_ID, 10);
+    }
+
+    @Test
+    void recoverAppliesSalesThatWereCommittedButNotSynced() throws IOException {
+        runTransactionCallbacks();
+        FlashSaleService crashed = newService();
+        crashed.start(VARIANT_ID);
+        // Không có transaction: món được tính là đã bán ngay, rồi tiến trình dừng trước khi sync
+        assertThat(crashed.tryAcquire(VARIANT_ID, 3)).isTrue();
+
+        FlashSaleService restarted = newService();
+        restarted.recover();
+
+        // DB vẫn còn 10 vì 3 món chưa được ghi; bộ đếm mở lại phải trừ phần đó
+        assertThat(restarted.getRemaining()).isEqualTo(Map.of(VARIANT_ID, 7));
+        verify(productVariantRepository).incrementQuantity(VARIANT_ID, -3);
+    }
+
+    @Test
+    void recoverDoesNotApplySyncedSalesTwice() throws IOException {
+        runTransactionCallbacks();
+        FlashSaleService first = newService();
+        first.start(VARIANT_ID);
+        assertThat(first.tryAcquire(VARIANT_ID, 3)).isTrue();
+        first.sync();
+        first.shutdown();
+
+        FlashSaleService restarted = newService();
+        restarted.recover();
+
+        assertThat(restarted.isActive(VARIANT_ID)).isTrue();
+        verify(productVariantRepository).incrementQuantity(anyLong(), anyInt());
+    }
+
+    @Test
+    void stopRejectsNewHoldsWhileOneIsStillOpen() throws IOException {
+        FlashSaleService service = newService();
+        service.start(VARIANT_ID);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(service.tryAcquire(VARIANT_ID, 1)).isTrue();
+
+        assertThatThrownBy(() -> service.stop(VARIANT_ID)).isInstanceOf(IllegalStateException.class);
+        assertThat(service.isActive(VARIANT_ID)).isTrue();
+        assertThat(service.tryAcquire(VARIANT_ID, 1)).isFalse();
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        service.stop(VARIANT_ID);
+
+        assertThat(service.isActive(VARIANT_ID)).isFalse();
+        assertThat(journalLines()).containsExactly("S 5", "E 5");
+        verify(productVariantRepository, never()).incrementQuantity(anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,86 @@
+package com.he180773.testreact.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog of(long fromInclusive, long toExclusive) {
+        HyperLogLog hll = new HyperLogLog();
+        for (long value = fromInclusive; value < toExclusive; value++) {
+            hll.add(value);
+        }
+        return hll;
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        HyperLogLog hll = of(0, 10);
+        assertThat(hll.estimate()).isCloseTo(10L, within(1L));
+    }
+
+    @Test
+    void duplicatesAreCountedOnce() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int round = 0; round < 5; round++) {
+            for (long value = 0; value < 1000; value++) {
+                hll.add(value);
+            }
+        }
+        assertThat(hll.estimate()).isEqualTo(of(0, 1000).estimate());
+    }
+
+    @Test
+    void largeCardinalityStaysWithinErrorBound() {
+        // P = 12: sai số chuẩn 1.04 / sqrt(4096) ~ 1.6%, cho phép 3 sigma
+        for (long n : new long[]{1_000, 50_000, 1_000_000}) {
+            assertThat((double) of(0, n).estimate()).isCloseTo(n, within(n * 0.05));
+        }
+    }
+
+    @Test
+    void mergeEqualsUnion() {
+        HyperLogLog left = of(0, 60_000);
+        HyperLogLog right = of(30_000, 90_000);
+        HyperLogLog union = of(0, 90_000);
+
+        HyperLogLog merged = left.copy();
+        merged.merge(right);
+        HyperLogLog mergedOtherWay = right.copy();
+        mergedOtherWay.merge(left);
+
+        assertThat(merged.toBytes()).isEqualTo(union.toBytes());
+        assertThat(mergedOtherWay.toBytes()).isEqualTo(union.toBytes());
+        assertThat(merged.estimate()).isEqualTo(union.estimate());
+    }
+
+    @Test
+    void mergeDoesNotModifyArgument() {
+        HyperLogLog left = of(0, 100);
+        HyperLogLog right = of(1_000, 5_000);
+        byte[] before = right.toBytes();
+        left.merge(right);
+        assertThat(right.toBytes()).isEqualTo(before);
+    }
+
+    @Test
+    void bytesRoundTripForSparseAndDenseSketches() {
+        for (HyperLogLog hll : new HyperLogLog[]{new HyperLogLog(), of(0, 50), of(0, 200_000)}) {
+            HyperLogLog restored = HyperLogLog.fromBytes(hll.toBytes());
+            assertThat(restored.toBytes()).isEqualTo(hll.toBytes());
+            assertThat(restored.estimate()).isEqualTo(hll.estimate());
+        }
+    }
+
+    @Test
+    void sparseEncodingIsSmallerThanDense() {
+        assertThat(of(0, 50).toBytes().length).isLessThan(of(0, 200_000).toBytes().length);
+    }
+}
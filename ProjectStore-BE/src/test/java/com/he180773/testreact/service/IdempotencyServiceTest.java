@@ -0,0 +1,110 @@
+package com.he180773.testreact.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyService idempotencyService = new IdempotencyService(new ObjectMapper());
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Supplier<ResponseEntity<?>> countingAction() {
+        return () -> ResponseEntity.ok(Map.of("call", calls.incrementAndGet()));
+    }
+
+    @Test
+    void duplicateRequestReplaysTheFirstResponse() {
+        ResponseEntity<?> first = idempotencyService.execute("order", "k1", Map.of("amount", 1), countingAction());
+        ResponseEntity<?> second = idempotencyService.execute("order", "k1", Map.of("amount", 1), countingAction());
+
+        assertThat(calls).hasValue(1);
+        assertThat(second.getBody()).isEqualTo(first.getBody());
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void concurrentDuplicatesRunTheActionOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Supplier<ResponseEntity<?>> slowAction = () -> {
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("call", calls.incrementAndGet()));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(
+                    () -> idempotencyService.execute("order", "k1", Map.of("amount", 1), slowAction), executor);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            // Request đầu còn đang chạy: request trùng phải chờ nó chứ không chạy action lần nữa
+            CompletableFuture<ResponseEntity<?>> second = CompletableFuture.supplyAsync(
+                    () -> idempotencyService.execute("order", "k1", Map.of("amount", 1), slowAction), executor);
+            finish.countDown();
+
+            ResponseEntity<?> original = first.get(5, TimeUnit.SECONDS);
+            ResponseEntity<?> replayed = second.get(5, TimeUnit.SECONDS);
+            assertThat(calls).hasValue(1);
+            assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(replayed.getBody()).isEqualTo(original.getBody());
+            assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reusingAKeyWithADifferentBodyIsRejected() {
+        idempotencyService.execute("order", "k1", Map.of("amount", 1), countingAction());
+        ResponseEntity<?> mismatch = idempotencyService.execute("order", "k1", Map.of("amount", 2), countingAction());
+
+        assertThat(mismatch.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sameKeyInAnotherScopeIsIndependent() {
+        idempotencyService.execute("order", "k1", Map.of("amount", 1), countingAction());
+        idempotencyService.execute("wallet", "k1", Map.of("amount", 2), countingAction());
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void requestsWithoutKeyAlwaysRun() {
+        idempotencyService.execute("order", null, Map.of("amount", 1), countingAction());
+        idempotencyService.execute("order", " ", Map.of("amount", 1), countingAction());
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void failuresAreNotRemembered() {
+        assertThatThrownBy(() -> idempotencyService.execute("order", "k1", Map.of("amount", 1), () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        ResponseEntity<?> retry = idempotencyService.execute("order", "k1", Map.of("amount", 1), countingAction());
+
+        assertThat(calls).hasValue(1);
+        assertThat(retry.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+}
@@ -0,0 +1,195 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.entity.OrderItem;
+import com.he180773.testreact.entity.StockReservation;
+import com.he180773.testreact.exception.InsufficientStockException;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import com.he180773.testreact.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceTest {
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+    @Mock
+    private ProductVariantRepository productVariantRepository;
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private ProductAggregateService productAggregateService;
+    @Mock
+    private FlashSaleService flashSaleService;
+    @Captor
+    private ArgumentCaptor<List<StockReservation>> reservationsCaptor;
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryService = new InventoryService(stockReservationRepository, productVariantRepository,
+                orderItemRepository, productAggregateService, flashSaleService, 48);
+    }
+
+    private static OrderItem item(Long variantId, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setOrderId(1L);
+        item.setProductVariantId(variantId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static StockReservation reservation(Long id, Long variantId, int quantity, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = new StockReservation(1L, variantId, quantity, now, now.plusHours(48));
+        reservation.setId(id);
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    @Test
+    void reserveDecrementsEachVariantOnceInIdOrderAndHoldsIt() {
+        when(productVariantRepository.decrementIfAvailable(anyLong(), anyInt())).thenReturn(1);
+
+        inventoryService.reserve(1L, List.of(item(9L, 1), item(3L, 2), item(9L, 1)));
+
+        InOrder order = inOrder(productVariantRepository);
+        order.verify(productVariantRepository).decrementIfAvailable(3L, 2);
+        order.verify(productVariantRepository).decrementIfAvailable(9L, 2);
+        verify(stockReservationRepository).saveAll(reservationsCaptor.capture());
+        assertThat(reservationsCaptor.getValue())
+                .extracting(StockReservation::getProductVariantId, StockReservation::getQuantity, StockReservation::getStatus)
+                .containsExactly(
+                        tuple(3L, 2, StockReservation.HELD),
+                        tuple(9L, 2, StockReservation.HELD));
+    }
+
+    @Test
+    void reserveFailsOnTheFirstShortVariantWithoutSavingHolds() {
+        when(productVariantRepository.decrementIfAvailable(3L, 2)).thenReturn(1);
+        when(productVariantRepository.decrementIfAvailable(9L, 5)).thenReturn(0);
+
+        assertThatThrownBy(() -> inventoryService.reserve(1L, List.of(item(3L, 2), item(9L, 5))))
+                .isInstanceOf(InsufficientStockException.class)
+                .extracting("productVariantId").isEqualTo(9L);
+        verify(stockReservationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void reserveUsesTheFlashSaleCounterInsteadOfTheDatabase() {
+        when(flashSaleService.isActive(3L)).thenReturn(true);
+        when(flashSaleService.tryAcquire(3L, 2)).thenReturn(true);
+
+        inventoryService.reserve(1L, List.of(item(3L, 2)));
+
+        verify(productVariantRepository, never()).decrementIfAvailable(anyLong(), anyInt());
+        verify(stockReservationRepository).saveAll(any());
+    }
+
+    @Test
+    void commitMovesHeldReservationsWithoutTouchingStock() {
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(11L, 3L, 2, StockReservation.HELD)));
+        when(stockReservationRepository.transition(11L, StockReservation.HELD, StockReservation.COMMITTED)).thenReturn(1);
+
+        inventoryService.commit(1L);
+
+        verify(stockReservationRepository, never()).transition(11L, StockReservation.RELEASED, StockReservation.COMMITTED);
+        verify(productVariantRepository, never()).decrementIfAvailable(anyLong(), anyInt());
+    }
+
+    @Test
+    void commitSkipsReservationsThatAreAlreadyCommitted() {
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(11L, 3L, 2, StockReservation.COMMITTED)));
+
+        inventoryService.commit(1L);
+
+        verify(stockReservationRepository, never()).transition(11L, StockReservation.RELEASED, StockReservation.COMMITTED);
+        verify(productVariantRepository, never()).decrementIfAvailable(anyLong(), anyInt());
+    }
+
+    @Test
+    void commitReservesAgainALineReleasedByExpiry() {
+        // Bản đọc vẫn là HELD nhưng job hết hạn đã trả dòng này về kho trước khi UPDATE chạy
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(12L, 3L, 2, StockReservation.HELD)));
+        when(stockReservationRepository.transition(12L, StockReservation.HELD, StockReservation.COMMITTED)).thenReturn(0);
+        when(stockReservationRepository.transition(12L, StockReservation.RELEASED, StockReservation.COMMITTED)).thenReturn(1);
+        when(productVariantRepository.decrementIfAvailable(3L, 2)).thenReturn(1);
+
+        inventoryService.commit(1L);
+
+        verify(productVariantRepository).decrementIfAvailable(3L, 2);
+    }
+
+    @Test
+    void commitRejectsWhenAReleasedLineIsNoLongerInStock() {
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(12L, 3L, 2, StockReservation.RELEASED)));
+        when(stockReservationRepository.transition(12L, StockReservation.HELD, StockReservation.COMMITTED)).thenReturn(0);
+        when(stockReservationRepository.transition(12L, StockReservation.RELEASED, StockReservation.COMMITTED)).thenReturn(1);
+        when(productVariantRepository.decrementIfAvailable(3L, 2)).thenReturn(0);
+
+        assertThatThrownBy(() -> inventoryService.commit(1L))
+                .isInstanceOf(InsufficientStockException.class)
+                .extracting("productVariantId").isEqualTo(3L);
+    }
+
+    @Test
+    void commitReservesLegacyOrdersThatHaveNoHolds() {
+        StockReservation held = reservation(11L, 3L, 2, StockReservation.HELD);
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(), List.of(held));
+        when(orderItemRepository.findByOrderId(1L)).thenReturn(List.of(item(3L, 2)));
+        when(productVariantRepository.decrementIfAvailable(3L, 2)).thenReturn(1);
+        when(stockReservationRepository.transition(11L, StockReservation.HELD, StockReservation.COMMITTED)).thenReturn(1);
+
+        inventoryService.commit(1L);
+
+        verify(stockReservationRepository).saveAll(any());
+        verify(productVariantRepository, times(1)).decrementIfAvailable(3L, 2);
+    }
+
+    @Test
+    void releaseReturnsStockOnlyOnceWhenCalledTwice() {
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(11L, 3L, 2, StockReservation.HELD)));
+        // Lần thứ hai dòng đã được luồng khác chuyển sang RELEASED nên UPDATE có điều kiện không khớp
+        when(stockReservationRepository.transition(11L, StockReservation.HELD, StockReservation.RELEASED)).thenReturn(1, 0);
+
+        inventoryService.release(1L);
+        inventoryService.release(1L);
+
+        verify(productVariantRepository, times(1)).incrementQuantity(3L, 2);
+        verify(flashSaleService, times(1)).restock(3L, 2);
+    }
+
+    @Test
+    void releaseIgnoresReservationsAlreadyReleased() {
+        when(stockReservationRepository.findByOrderId(1L)).thenReturn(List.of(reservation(11L, 3L, 2, StockReservation.RELEASED)));
+
+        inventoryService.release(1L);
+
+        verify(stockReservationRepository, never()).transition(anyLong(), anyString(), anyString());
+        verify(productVariantRepository, never()).incrementQuantity(anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,238 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.BulkOrderResultDTO;
+import com.he180773.testreact.entity.Order;
+import com.he180773.testreact.entity.OrderStatus;
+import com.he180773.testreact.event.OrderStatusChangedEvent;
+import com.he180773.testreact.event.OrdersTransitionedEvent;
+import com.he180773.testreact.exception.OrderTransitionException;
+import com.he180773.testreact.repository.CartItemRepository;
+import com.he180773.testreact.repository.CartRepository;
+import com.he180773.testreact.repository.OrderItemRepository;
+import com.he180773.testreact.repository.OrderRepository;
+import com.he180773.testreact.repository.ProductRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import com.he180773.testreact.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private OrderItemRepository orderItemRepository;
+    @Mock
+    private CartRepository cartRepository;
+    @Mock
+    private CartItemRepository cartItemRepository;
+    @Mock
+    private ProductVariantRepository productVariantRepository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private InventoryService inventoryService;
+    @Mock
+    private WalletRepository walletRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Captor
+    private ArgumentCaptor<OrderStatusChangedEvent> eventCaptor;
+    @Captor
+    private ArgumentCaptor<OrdersTransitionedEvent> bulkEventCaptor;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(orderRepository, orderItemRepository, cartRepository, cartItemRepository,
+                productVariantRepository, productRepository, inventoryService, walletRepository, eventPublisher);
+    }
+
+    private static Order order(Long id, String status, Long version) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setVersion(version);
+        return order;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {OrderStatus.PENDING, OrderStatus.CANCELLED})
+    void expiredHoldOfAnUnapprovedOrderIsReleased(String status) {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, status, 0L)));
+
+        orderService.expireReservation(1L);
+
+        verify(inventoryService).release(1L);
+        verify(inventoryService, never()).commit(anyLong());
+    }
+
+    @Test
+    void expiredHoldOfAMissingOrderIsReleased() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+
+        orderService.expireReservation(1L);
+
+        verify(inventoryService).release(1L);
+    }
+
+    @Test
+    void expiredHoldOfAnApprovedOrderIsCommitted() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, OrderStatus.CONFIRMED, 1L)));
+
+        orderService.expireReservation(1L);
+
+        verify(inventoryService).commit(1L);
+        verify(inventoryService, never()).release(anyLong());
+    }
+
+    @Test
+    void transitionUpdatesOnlyTheVersionThatWasRead() {
+        Order order = order(1L, OrderStatus.PENDING, 3L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.transition(1L, OrderStatus.PENDING, OrderStatus.CONFIRMED, 3L)).thenReturn(1);
+
+        Order updated = orderService.transition(1L, OrderStatus.CONFIRMED);
+
+        assertThat(updated.getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(updated.getVersion()).isEqualTo(4L);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getFromStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(eventCaptor.getValue().getToStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(eventCaptor.getValue().getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void transitionTreatsAMissingVersionAsZero() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, OrderStatus.PENDING, null)));
+        when(orderRepository.transition(1L, OrderStatus.PENDING, OrderStatus.CANCELLED, 0L)).thenReturn(1);
+
+        assertThat(orderService.transition(1L, OrderStatus.CANCELLED).getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void transitionLosingTheVersionCheckFailsWithoutPublishing() {
+        // Thao tác khác đã đổi đơn sau khi đọc: UPDATE có điều kiện version không khớp dòng nào
+        Order order = order(1L, OrderStatus.PENDING, 3L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.transition(1L, OrderStatus.PENDING, OrderStatus.CONFIRMED, 3L)).thenReturn(0);
+
+        assertThatThrownBy(() -> orderService.transition(1L, OrderStatus.CONFIRMED))
+                .isInstanceOf(OrderTransitionException.class);
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(order.getVersion()).isEqualTo(3L);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void transitionRejectsInvalidStepsBeforeUpdating() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, OrderStatus.DELIVERED, 5L)));
+
+        assertThatThrownBy(() -> orderService.transition(1L, OrderStatus.CANCELLED))
+                .isInstanceOf(OrderTransitionException.class);
+        verify(orderRepository, never()).transition(anyLong(), anyString(), anyString(), anyLong());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void bulkTransitionReportsEachOrderInInputOrder() {
+        when(orderRepository.lockAllByIdIn(anyCollection())).thenReturn(List.of(
+                order(1L, OrderStatus.PENDING, 0L),
+                order(2L, OrderStatus.CONFIRMED, 1L),
+                order(3L, OrderStatus.DELIVERED, 3L),
+                order(4L, OrderStatus.PENDING, 0L)));
+        when(inventoryService.findOrdersWithoutReservations(any())).thenReturn(Set.of(4L));
+
+        List<BulkOrderResultDTO> results = orderService.bulkTransition(List.of(4L, 1L, 99L, 2L, 3L), OrderStatus.CONFIRMED);
+
+        assertThat(results)
+                .extracting(BulkOrderResultDTO::getOrderId, BulkOrderResultDTO::isSuccess,
+                        BulkOrderResultDTO::getStatus, BulkOrderResultDTO::getMessage)
+                .containsExactly(
+                        tuple(4L, false, OrderStatus.PENDING, "Đơn chưa giữ hàng, hãy duyệt riêng"),
+                        tuple(1L, true, OrderStatus.CONFIRMED, null),
+                        tuple(99L, false, null, "Không tìm thấy đơn"),
+                        tuple(2L, true, OrderStatus.CONFIRMED, "Đơn đã ở trạng thái CONFIRMED"),
+                        tuple(3L, false, OrderStatus.DELIVERED, "Không thể chuyển từ DELIVERED sang CONFIRMED"));
+        verify(orderRepository).transitionAll(List.of(1L), OrderStatus.PENDING, OrderStatus.CONFIRMED);
+        verify(walletRepository, never()).refundWalletOrders(anyCollection());
+        verify(eventPublisher).publishEvent(bulkEventCaptor.capture());
+        assertThat(bulkEventCaptor.getValue().getTransitions())
+                .extracting(OrderStatusChangedEvent::getOrderId, OrderStatusChangedEvent::getVersion)
+                .containsExactly(tuple(1L, 1L));
+    }
+
+    @Test
+    void bulkCancelUpdatesOneGroupPerStatusAndRefundsWalletOrders() {
+        when(orderRepository.lockAllByIdIn(anyCollection())).thenReturn(List.of(
+                order(1L, OrderStatus.PENDING, 0L),
+                order(2L, OrderStatus.CONFIRMED, 1L),
+                order(3L, OrderStatus.PENDING, 0L)));
+
+        List<BulkOrderResultDTO> results = orderService.bulkTransition(List.of(1L, 2L, 3L), OrderStatus.CANCELLED);
+
+        assertThat(results).allMatch(BulkOrderResultDTO::isSuccess);
+        verify(orderRepository).transitionAll(List.of(1L, 3L), OrderStatus.PENDING, OrderStatus.CANCELLED);
+        verify(orderRepository).transitionAll(List.of(2L), OrderStatus.CONFIRMED, OrderStatus.CANCELLED);
+        verify(walletRepository).refundWalletOrders(List.of(1L, 2L, 3L));
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void bulkTransitionIgnoresDuplicateAndNullIds() {
+        when(orderRepository.lockAllByIdIn(anyCollection())).thenReturn(List.of(order(1L, OrderStatus.PENDING, 0L)));
+
+        List<BulkOrderResultDTO> results = orderService.bulkTransition(Arrays.asList(1L, null, 1L), OrderStatus.CANCELLED);
+
+        assertThat(results).extracting(BulkOrderResultDTO::getOrderId).containsExactly(1L);
+        verify(orderRepository).transitionAll(List.of(1L), OrderStatus.PENDING, OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void bulkTransitionWithNothingToChangeDoesNotWriteOrPublish() {
+        when(orderRepository.lockAllByIdIn(anyCollection())).thenReturn(List.of(order(1L, OrderStatus.DELIVERED, 3L)));
+
+        List<BulkOrderResultDTO> results = orderService.bulkTransition(List.of(1L), OrderStatus.CANCELLED);
+
+        assertThat(results).extracting(BulkOrderResultDTO::isSuccess).containsExactly(false);
+        verify(orderRepository, never()).transitionAll(anyCollection(), anyString(), anyString());
+        verifyNoInteractions(eventPublisher, walletRepository);
+    }
+
+    @Test
+    void bulkTransitionRejectsTooManyOrders() {
+        List<Long> ids = LongStream.rangeClosed(1, OrderService.MAX_BULK_SIZE + 1).boxed().toList();
+
+        assertThatThrownBy(() -> orderService.bulkTransition(ids, OrderStatus.CANCELLED))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(orderRepository);
+    }
+}
@@ -0,0 +1,150 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.repository.ProductFacetRepository;
+import com.he180773.testreact.repository.ProductRepository;
+import com.he180773.testreact.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductAggregateServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductFacetRepository productFacetRepository;
+    @Mock
+    private ProductVariantRepository productVariantRepository;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ProductAggregateService productAggregateService;
+
+    @BeforeEach
+    void setUp() {
+        productAggregateService = new ProductAggregateService(productRepository, productFacetRepository,
+                productVariantRepository, productService, transactionTemplate);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void runTransactionCallbacks() {
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static void rollback() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    @Test
+    void recomputeRunsOncePerTransactionForAllTouchedProducts() {
+        TransactionSynchronizationManager.initSynchronization();
+        productAggregateService.recompute(7L);
+        productAggregateService.recompute(3L);
+        productAggregateService.recompute(7L);
+
+        verify(productRepository, never()).recomputeAggregates(anyCollection());
+        commit();
+
+        verify(productRepository).lockAllByIdIn(List.of(3L, 7L));
+        verify(productRepository, times(1)).recomputeAggregates(List.of(3L, 7L));
+        verify(productFacetRepository, times(1)).deleteByProductIdIn(List.of(3L, 7L));
+        verify(productService, times(1)).onProductChanged(3L);
+        verify(productService, times(1)).onProductChanged(7L);
+    }
+
+    @Test
+    void nextTransactionStartsWithAnEmptyBatch() {
+        TransactionSynchronizationManager.initSynchronization();
+        productAggregateService.recompute(3L);
+        commit();
+
+        TransactionSynchronizationManager.initSynchronization();
+        productAggregateService.recompute(7L);
+        commit();
+
+        verify(productRepository).recomputeAggregates(List.of(3L));
+        verify(productRepository).recomputeAggregates(List.of(7L));
+        verify(productService, times(1)).onProductChanged(3L);
+    }
+
+    @Test
+    void rolledBackTransactionDoesNotRecomputeOrRefreshTheCatalog() {
+        TransactionSynchronizationManager.initSynchronization();
+        productAggregateService.recompute(3L);
+        rollback();
+
+        verify(productRepository, never()).recomputeAggregates(anyCollection());
+        verify(productService, never()).onProductChanged(anyLong());
+    }
+
+    @Test
+    void bulkRecomputeWorksInChunksAndRebuildsTheCatalogOnce() {
+        runTransactionCallbacks();
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+
+        productAggregateService.recompute(ids);
+
+        verify(transactionTemplate, times(3)).executeWithoutResult(any());
+        verify(productRepository).recomputeAggregates(ids.subList(0, 500));
+        verify(productRepository).recomputeAggregates(ids.subList(500, 1000));
+        verify(productRepository).recomputeAggregates(ids.subList(1000, 1200));
+        verify(productService, times(1)).rebuildCatalog();
+        verify(productService, never()).onProductChanged(anyLong());
+    }
+
+    @Test
+    void recomputeAllWalksIdsByKeyset() {
+        runTransactionCallbacks();
+        when(productRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(productRepository.findIdsAfter(eq(2L), any())).thenReturn(List.of());
+
+        assertThat(productAggregateService.recomputeAll()).isEqualTo(2);
+
+        verify(productRepository).recomputeAggregates(List.of(1L, 2L));
+        verify(productService, times(1)).rebuildCatalog();
+    }
+}
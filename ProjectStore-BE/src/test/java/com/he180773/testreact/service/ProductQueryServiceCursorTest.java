@@ -0,0 +1,80 @@
+package com.he180773.testreact.service;
+
+import com.he180773.testreact.dto.ProductQuery.SortOrder;
+import com.he180773.testreact.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductQueryServiceCursorTest {
+
+    private static Product product(long id, String name, Integer price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        return product;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void priceCursorRoundTrip() {
+        String cursor = ProductQueryService.encodeCursor(product(42, "Áo", 150_000), SortOrder.PRICE_ASC);
+        ProductQueryService.Cursor decoded = ProductQueryService.decodeCursor(cursor, SortOrder.PRICE_ASC);
+        assertThat(decoded.id()).isEqualTo(42L);
+        assertThat(decoded.key()).isEqualTo("150000");
+    }
+
+    @Test
+    void nameCursorKeepsSeparatorsAndUnicode() {
+        String name = "Áo | Lam | Đường phố";
+        String cursor = ProductQueryService.encodeCursor(product(7, name, null), SortOrder.NAME_DESC);
+        assertThat(cursor).doesNotContain("+", "/", "=");
+        ProductQueryService.Cursor decoded = ProductQueryService.decodeCursor(cursor, SortOrder.NAME_DESC);
+        assertThat(decoded.id()).isEqualTo(7L);
+        assertThat(decoded.key()).isEqualTo(name);
+    }
+
+    @Test
+    void nullKeyRoundTripsAsNull() {
+        String cursor = ProductQueryService.encodeCursor(product(9, "Quần", null), SortOrder.PRICE_DESC);
+        ProductQueryService.Cursor decoded = ProductQueryService.decodeCursor(cursor, SortOrder.PRICE_DESC);
+        assertThat(decoded.id()).isEqualTo(9L);
+        assertThat(decoded.key()).isNull();
+    }
+
+    @Test
+    void emptyNameIsNotConfusedWithNull() {
+        String cursor = ProductQueryService.encodeCursor(product(3, "", 1), SortOrder.NAME_ASC);
+        assertThat(ProductQueryService.decodeCursor(cursor, SortOrder.NAME_ASC).key()).isEmpty();
+    }
+
+    @Test
+    void newestCursorRoundTrip() {
+        String cursor = ProductQueryService.encodeCursor(product(1234, "Áo", 1), SortOrder.NEWEST);
+        assertThat(ProductQueryService.decodeCursor(cursor, SortOrder.NEWEST).id()).isEqualTo(1234L);
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        String cursor = ProductQueryService.encodeCursor(product(1, "Áo", 100), SortOrder.PRICE_ASC);
+        assertThatThrownBy(() -> ProductQueryService.decodeCursor(cursor, SortOrder.NAME_ASC))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : new String[]{"%%%", encode("PRICE_ASC"), encode("PRICE_ASC|abc|1"), encode("PRICE_ASC|1|abc")}) {
+            assertThatThrownBy(() -> ProductQueryService.decodeCursor(cursor, SortOrder.PRICE_ASC))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.he180773.testreact.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    private static double exact(double[] sorted, double q) {
+        return sorted[(int) Math.floor(q * (sorted.length - 1))];
+    }
+
+    @Test
+    void emptySketchReturnsZero() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertThat(sketch.getCount()).isZero();
+        assertThat(sketch.quantile(0.5)).isZero();
+    }
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            // Giá trị đơn hàng trải nhiều bậc độ lớn (log-normal)
+            values[i] = Math.exp(12 + 1.5 * random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertThat(sketch.getCount()).isEqualTo(values.length);
+        for (double q : QUANTILES) {
+            double expected = exact(values, q);
+            assertThat(sketch.quantile(q)).as("q=%s", q).isCloseTo(expected, within(expected * 0.0101));
+        }
+    }
+
+    @Test
+    void zeroAndNegativeValuesFallIntoZeroBucket() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(-5);
+        sketch.add(100);
+        assertThat(sketch.getCount()).isEqualTo(3);
+        assertThat(sketch.quantile(0)).isZero();
+        assertThat(sketch.quantile(1)).isCloseTo(100, within(1.0));
+    }
+
+    @Test
+    void mergeEqualsUnion() {
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        QuantileSketch union = new QuantileSketch();
+        for (int i = 1; i <= 20_000; i++) {
+            double small = i * 3.0;
+            double large = 1_000_000 + i * 17.0;
+            left.add(small);
+            right.add(large);
+            union.add(small);
+            union.add(large);
+        }
+        right.add(0);
+        union.add(0);
+
+        QuantileSketch merged = left.copy();
+        merged.merge(right);
+
+        assertThat(merged.getCount()).isEqualTo(union.getCount());
+        for (double q : QUANTILES) {
+            assertThat(merged.quantile(q)).as("q=%s", q).isEqualTo(union.quantile(q));
+        }
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(i % 7 == 0 ? 0 : i * 11.5);
+        }
+        for (QuantileSketch original : new QuantileSketch[]{new QuantileSketch(), sketch}) {
+            QuantileSketch restored = QuantileSketch.fromBytes(original.toBytes());
+            assertThat(restored.getCount()).isEqualTo(original.getCount());
+            assertThat(restored.toBytes()).isEqualTo(original.toBytes());
+            for (double q : QUANTILES) {
+                assertThat(restored.quantile(q)).isEqualTo(original.quantile(q));
+            }
+        }
+    }
+}
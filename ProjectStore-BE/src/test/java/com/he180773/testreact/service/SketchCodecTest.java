@@ -0,0 +1,61 @@
+package com.he180773.testreact.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SketchCodecTest {
+
+    @Test
+    void varLongRoundTrip() {
+        long[] values = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long value : values) {
+            SketchCodec.writeVarLong(out, value);
+        }
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        for (long value : values) {
+            assertThat(SketchCodec.readVarLong(in)).isEqualTo(value);
+        }
+        assertThat(in.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void smallVarLongUsesOneByte() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SketchCodec.writeVarLong(out, 127);
+        assertThat(out.size()).isEqualTo(1);
+        SketchCodec.writeVarLong(out, 128);
+        assertThat(out.size()).isEqualTo(3);
+    }
+
+    @Test
+    void zigZagRoundTripAndStaysWithinFiveBytes() {
+        int[] values = {0, -1, 1, -64, 63, -65, 64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SketchCodec.writeZigZag(out, value);
+            assertThat(out.size()).as("value=%s", value).isLessThanOrEqualTo(5);
+            assertThat(SketchCodec.readZigZag(ByteBuffer.wrap(out.toByteArray()))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void smallNegativeZigZagUsesOneByte() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SketchCodec.writeZigZag(out, -1);
+        assertThat(out.size()).isEqualTo(1);
+    }
+
+    @Test
+    void overlongVarLongIsRejected() {
+        byte[] bytes = new byte[11];
+        java.util.Arrays.fill(bytes, (byte) 0x80);
+        assertThatThrownBy(() -> SketchCodec.readVarLong(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}